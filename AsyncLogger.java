@@ -0,0 +1,361 @@
+package org.kk.lib.logger;
+
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志后端
+ * 调用线程只把日志写入预分配的有界无锁环形队列，由一个后台线程批量取出并输出到logcat及其他Sink，
+ * 避免启动、网络回调等日志高峰时在UI线程上直接调用android.util.Log。
+ *
+ *  使用：
+ *  AsyncLogger logger = new AsyncLogger(1024, AsyncLogger.OverflowPolicy.DROP_OLDEST);
+ *  logger.start();
+ *  MyLog.setAsyncLogger(logger);
+ *  KL.setAsyncLogger(logger);
+ */
+public class AsyncLogger {
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        // 丢弃最旧的一条，保证最新日志写入
+        DROP_OLDEST,
+        // 丢弃当前这条
+        DROP_NEWEST,
+        // 阻塞调用线程直到有空位
+        BLOCK
+    }
+
+    /**
+     * 日志输出端，一般在后台线程中回调；后台线程未启动、已停止或异常退出时在调用线程中直接回调，
+     * 同一时间只有一个线程回调
+     */
+    public interface Sink {
+        /**
+         * 输出一条日志，record为队列中复用的对象，回调结束后不可再持有
+         */
+        void write(Record record);
+
+        /**
+         * 一批日志输出完成
+         */
+        void flush();
+    }
+
+    /**
+     * 队列槽位，预先分配，循环复用
+     */
+    public static final class Record {
+        public int priority;
+        public String tag;
+        public String msg;
+        public Throwable throwable;
+        public long timeMillis;
+        public long threadId;
+
+        private void copyFrom(Record other) {
+            priority = other.priority;
+            tag = other.tag;
+            msg = other.msg;
+            throwable = other.throwable;
+            timeMillis = other.timeMillis;
+            threadId = other.threadId;
+        }
+
+        private void clear() {
+            tag = null;
+            msg = null;
+            throwable = null;
+        }
+    }
+
+    /**
+     * 默认的logcat输出
+     */
+    public static final Sink LOGCAT_SINK = new Sink() {
+        @Override
+        public void write(Record record) {
+            if (record.throwable == null) {
+                Log.println(record.priority, record.tag, record.msg);
+            } else {
+                Log.println(record.priority, record.tag, record.msg + '\n' + Log.getStackTraceString(record.throwable));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+    };
+
+    // 每批最多处理的条数
+    private static final int DRAIN_BATCH_SIZE = 64;
+    // 队列为空时后台线程的最长休眠时间，防止唤醒信号丢失
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+    // BLOCK策略下调用线程每次等待的时间
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+
+    private final Record[] slots;
+    // 每个槽位的序号，用于判断槽位当前可写还是可读
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final OverflowPolicy overflowPolicy;
+    private final List<Sink> sinks = new CopyOnWriteArrayList<>();
+    // 输出时使用的记录副本，持有sinkLock时使用
+    private final Record drainRecord = new Record();
+    // 保证同一时间只有一个线程调用Sink
+    private final Object sinkLock = new Object();
+
+    private volatile boolean running = false;
+    private volatile boolean workerParked = false;
+    private volatile Thread worker;
+
+    public AsyncLogger(int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        // 容量取2的幂，下标计算只需要位运算
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if (size <= 0) {
+            size = 1;
+        }
+        this.mask = size - 1;
+        this.overflowPolicy = overflowPolicy == null ? OverflowPolicy.DROP_OLDEST : overflowPolicy;
+        this.slots = new Record[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Record();
+            sequences.set(i, i);
+        }
+        sinks.add(LOGCAT_SINK);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::drainLoop, "AsyncLogger");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 停止后台线程，队列中剩余的日志会先全部输出
+     */
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    public void addSink(Sink sink) {
+        if (sink != null && !sinks.contains(sink)) {
+            sinks.add(sink);
+        }
+    }
+
+    public void removeSink(Sink sink) {
+        sinks.remove(sink);
+    }
+
+    /**
+     * 因队列满被丢弃的日志条数
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * 写入一条日志
+     * @return false表示该条日志被丢弃
+     */
+    public boolean offer(int priority, String tag, String msg, Throwable throwable) {
+        long timeMillis = System.currentTimeMillis();
+        long threadId = Thread.currentThread().getId();
+        if (!isWorkerAlive()) {
+            // 没有后台线程消费，写入队列的日志不会被输出
+            writeDirect(priority, tag, msg, throwable, timeMillis, threadId);
+            return true;
+        }
+        while (true) {
+            long pos = tail.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    Record record = slots[index];
+                    record.priority = priority;
+                    record.tag = tag;
+                    record.msg = msg == null ? "null" : msg;
+                    record.throwable = throwable;
+                    record.timeMillis = timeMillis;
+                    record.threadId = threadId;
+                    // 发布槽位，消费者可见
+                    sequences.set(index, pos + 1);
+                    if (workerParked) {
+                        LockSupport.unpark(worker);
+                    }
+                    return true;
+                }
+            } else if (diff < 0) {
+                // 队列已满
+                if (!isWorkerAlive()) {
+                    // 等待期间后台线程停止了，BLOCK策略下不能一直等
+                    writeDirect(priority, tag, msg, throwable, timeMillis, threadId);
+                    return true;
+                }
+                if (!handleOverflow()) {
+                    return false;
+                }
+            }
+            // diff > 0: 其他生产者已占用该位置，重试
+        }
+    }
+
+    private boolean isWorkerAlive() {
+        Thread thread = worker;
+        return running && thread != null && thread.isAlive();
+    }
+
+    /**
+     * 后台线程不可用时在调用线程中输出，先输出队列中剩余的日志保证顺序
+     */
+    private void writeDirect(int priority, String tag, String msg, Throwable throwable, long timeMillis, long threadId) {
+        synchronized (sinkLock) {
+            while (poll(sinks)) {
+                // 输出剩余日志
+            }
+            Record record = new Record();
+            record.priority = priority;
+            record.tag = tag;
+            record.msg = msg == null ? "null" : msg;
+            record.throwable = throwable;
+            record.timeMillis = timeMillis;
+            record.threadId = threadId;
+            dispatch(sinks, record);
+            flush(sinks);
+        }
+    }
+
+    /**
+     * @return true表示可以重试写入，false表示放弃本条
+     */
+    private boolean handleOverflow() {
+        OverflowPolicy policy = overflowPolicy;
+        // 后台线程自身（例如Sink内部又打了日志）不能阻塞等待自己
+        if (policy == OverflowPolicy.BLOCK && Thread.currentThread() == worker) {
+            policy = OverflowPolicy.DROP_NEWEST;
+        }
+        switch (policy) {
+            case DROP_NEWEST:
+                droppedCount.incrementAndGet();
+                return false;
+            case DROP_OLDEST:
+                if (poll(null)) {
+                    droppedCount.incrementAndGet();
+                }
+                return true;
+            case BLOCK:
+            default:
+                LockSupport.unpark(worker);
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                return true;
+        }
+    }
+
+    /**
+     * 取出一条日志并交给sinks输出，sinks为null时直接丢弃
+     * 传入sinks时必须持有sinkLock
+     */
+    private boolean poll(List<Sink> sinks) {
+        while (true) {
+            long pos = head.get();
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Record record = slots[index];
+                    if (sinks != null) {
+                        drainRecord.copyFrom(record);
+                    }
+                    record.clear();
+                    // 先释放槽位再输出，避免慢速Sink占住队列
+                    sequences.set(index, pos + mask + 1);
+                    if (sinks != null) {
+                        dispatch(sinks, drainRecord);
+                        drainRecord.clear();
+                    }
+                    return true;
+                }
+            } else if (diff < 0) {
+                // 队列为空
+                return false;
+            }
+        }
+    }
+
+    // 捕获Throwable，一个出错的Sink不能让后台线程退出
+    private void dispatch(List<Sink> sinks, Record record) {
+        for (Sink sink : sinks) {
+            try {
+                sink.write(record);
+            } catch (Throwable ignored) {
+            }
+        }
+    }
+
+    private void flush(List<Sink> sinks) {
+        for (Sink sink : sinks) {
+            try {
+                sink.flush();
+            } catch (Throwable ignored) {
+            }
+        }
+    }
+
+    private void drainLoop() {
+        while (true) {
+            int count = 0;
+            synchronized (sinkLock) {
+                while (count < DRAIN_BATCH_SIZE && poll(sinks)) {
+                    count++;
+                }
+                if (count > 0) {
+                    flush(sinks);
+                }
+            }
+            if (count > 0) {
+                continue;
+            }
+            if (!running) {
+                break;
+            }
+            workerParked = true;
+            if (head.get() == tail.get()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            workerParked = false;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package org.kk.lib.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * BinaryLogWriter 生成的二进制日志解码工具，在电脑上运行（不依赖Android）
+ *
+ *  java -cp . org.kk.lib.logger.BinaryLogDecoder <日志文件或目录>...
+ *
+ *  目录会按分段序号依次解码其中所有的 binary-N.log 文件（BinaryLogWriter.FILE_PREFIX），
+ *  忽略同目录下的文本日志分段
+ */
+public class BinaryLogDecoder {
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+    private final Date date = new Date();
+    private final PrintStream out;
+
+    private static final class Site {
+        final String tag;
+        final String template;
+
+        Site(String tag, String template) {
+            this.tag = tag;
+            this.template = template;
+        }
+    }
+
+    public BinaryLogDecoder(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: BinaryLogDecoder <log file or dir>...");
+            System.exit(1);
+        }
+        BinaryLogDecoder decoder = new BinaryLogDecoder(System.out);
+        for (String path : args) {
+            for (File file : listSegments(new File(path))) {
+                decoder.decode(file);
+            }
+        }
+        System.out.flush();
+    }
+
+    /**
+     * 解码一个分段文件，每条日志输出一行
+     */
+    public void decode(File file) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(MappedLogFile.readSegment(file));
+        // 调用位置定义只在本分段内有效
+        Map<Integer, Site> sites = new HashMap<>();
+        while (data.remaining() > 1) {
+            byte type = data.get();
+            int length = (int) getVarint(data);
+            if (length < 0 || length > data.remaining()) {
+                // 最后一条记录未写完整
+                break;
+            }
+            ByteBuffer payload = data.slice();
+            payload.limit(length);
+            data.position(data.position() + length);
+            try {
+                if (type == BinaryLogWriter.TYPE_SITE) {
+                    int id = (int) getVarint(payload);
+                    sites.put(id, new Site(getString(payload), getString(payload)));
+                } else if (type == BinaryLogWriter.TYPE_LOG) {
+                    decodeLog(payload, sites);
+                }
+            } catch (RuntimeException e) {
+                out.println("<corrupted record: " + e + ">");
+            }
+        }
+    }
+
+    private void decodeLog(ByteBuffer payload, Map<Integer, Site> sites) {
+        long timeMillis = payload.getLong();
+        int priority = payload.get();
+        long threadId = getVarint(payload);
+        int siteId = (int) getVarint(payload);
+        int argCount = payload.get() & 0xFF;
+        Object[] args = new Object[argCount];
+        for (int i = 0; i < argCount; i++) {
+            args[i] = getArg(payload);
+        }
+        Site site = sites.get(siteId);
+        String tag = site == null ? "site#" + siteId : site.tag;
+        String template = site == null ? null : site.template;
+
+        date.setTime(timeMillis);
+        out.println(dateFormat.format(date) + " " + threadId + " " + MappedLogFile.priorityChar(priority) + "/" + tag + ": "
+                + formatMessage(template, args));
+    }
+
+    private static String formatMessage(String template, Object[] args) {
+        if (template != null) {
+            try {
+                return String.format(Locale.US, template, args);
+            } catch (IllegalFormatException e) {
+                return template + " " + Arrays.toString(args);
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+            builder.append(args[i]);
+        }
+        return builder.toString();
+    }
+
+    private static Object getArg(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case BinaryLogWriter.ARG_NULL:
+                return null;
+            case BinaryLogWriter.ARG_STRING:
+                return getString(buffer);
+            case BinaryLogWriter.ARG_INT:
+                return (int) unzigzag(getVarint(buffer));
+            case BinaryLogWriter.ARG_LONG:
+                return unzigzag(getVarint(buffer));
+            case BinaryLogWriter.ARG_DOUBLE:
+                return buffer.getDouble();
+            case BinaryLogWriter.ARG_FLOAT:
+                return buffer.getFloat();
+            case BinaryLogWriter.ARG_BOOLEAN:
+                return buffer.get() != 0;
+            case BinaryLogWriter.ARG_CHAR:
+                return (char) getVarint(buffer);
+            default:
+                throw new IllegalStateException("unknown arg type " + type);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = (int) getVarint(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        // 与写入端对应，每个char编码为1~3字节
+        StringBuilder builder = new StringBuilder(length);
+        int end = buffer.position() + length;
+        while (buffer.position() < end) {
+            int b = buffer.get() & 0xFF;
+            if (b < 0x80) {
+                builder.append((char) b);
+            } else if (b < 0xE0) {
+                builder.append((char) (((b & 0x1F) << 6) | (buffer.get() & 0x3F)));
+            } else {
+                builder.append((char) (((b & 0x0F) << 12) | ((buffer.get() & 0x3F) << 6) | (buffer.get() & 0x3F)));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        while (shift < 64) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+        throw new IllegalStateException("malformed varint");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static List<File> listSegments(File path) {
+        if (!path.isDirectory()) {
+            return Collections.singletonList(path);
+        }
+        return MappedLogFile.listSegmentFiles(path, BinaryLogWriter.FILE_PREFIX);
+    }
+}
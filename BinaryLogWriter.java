@@ -0,0 +1,297 @@
+package org.kk.lib.logger;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 二进制结构化日志
+ * 打日志时不做任何字符串格式化，只记录时间戳、级别、线程ID、调用位置ID和原始参数，
+ * 文件由 BinaryLogDecoder 在电脑上还原成文本。
+ *
+ *  记录格式：[类型 1字节][内容长度 varint][内容]
+ *  调用位置定义 TYPE_SITE：[id varint][tag 字符串][模板 字符串]
+ *  日志记录 TYPE_LOG：[时间戳 8字节][级别 1字节][线程ID varint][调用位置id varint][参数个数 1字节][参数...]
+ *  参数：[类型 1字节][值]，字符串为 [长度+1 varint][UTF-8]，长度为0表示null
+ *
+ *  调用位置定义在每个分段中第一次用到时写入，单个分段文件可以独立解码。
+ *  同一位置的不同模板是不同的调用位置；最多保留 MAX_SITES 个，淘汰的id由新的调用位置复用并重新写入定义，
+ *  解码时以最近的定义为准。
+ *
+ *  BinaryLogWriter writer = new BinaryLogWriter(new MappedLogFile(dir, BinaryLogWriter.FILE_PREFIX, 1024 * 1024, 8));
+ *  MyLog.setBinaryLogWriter(writer);
+ */
+public class BinaryLogWriter {
+    // 分段文件名前缀，BinaryLogDecoder 解码目录时只读取这个前缀的文件
+    public static final String FILE_PREFIX = "binary";
+
+    public static final byte TYPE_SITE = 1;
+    public static final byte TYPE_LOG = 2;
+
+    public static final byte ARG_NULL = 0;
+    public static final byte ARG_STRING = 1;
+    public static final byte ARG_INT = 2;
+    public static final byte ARG_LONG = 3;
+    public static final byte ARG_DOUBLE = 4;
+    public static final byte ARG_FLOAT = 5;
+    public static final byte ARG_BOOLEAN = 6;
+    public static final byte ARG_CHAR = 7;
+
+    // 单个字符串参数最多保存的字符数
+    private static final int MAX_STRING_LENGTH = 8 * 1024;
+    private static final int MAX_ARG_COUNT = 255;
+    // 最多保留的调用位置数
+    private static final int MAX_SITES = 1024;
+
+    private final MappedLogFile file;
+
+    // 以下字段只在synchronized(file)中访问
+    // (调用位置, 模板) -> 调用位置信息，按访问顺序排列，最久未使用的在最前面
+    private final LinkedHashMap<SiteKey, Site> sites = new LinkedHashMap<>(64, 0.75f, true);
+    // 查找用的key，避免每条日志创建对象
+    private final SiteKey lookupKey = new SiteKey();
+    private int nextSiteId = 0;
+    private ByteBuffer siteBuffer = ByteBuffer.allocate(256);
+    private ByteBuffer logBuffer = ByteBuffer.allocate(512);
+
+    private static final class SiteKey {
+        // StackTraceElement或固定TAG的logger
+        Object location;
+        String template;
+        int hashCode;
+
+        SiteKey set(Object location, String template) {
+            this.location = location;
+            this.template = template;
+            this.hashCode = location.hashCode() * 31 + (template == null ? 0 : template.hashCode());
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SiteKey)) return false;
+            SiteKey key = (SiteKey) o;
+            return hashCode == key.hashCode && location.equals(key.location)
+                    && (template == null ? key.template == null : template.equals(key.template));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Site {
+        final int id;
+        final String tag;
+        final String template;
+        // 已写入定义的分段序号
+        int definedSegment = -1;
+
+        Site(int id, String tag, String template) {
+            this.id = id;
+            this.tag = tag;
+            this.template = template;
+        }
+    }
+
+    public BinaryLogWriter(MappedLogFile file) {
+        this.file = file;
+    }
+
+    /**
+     * 写入一条日志
+     * @param siteKey  调用位置，相同位置需传入equals相等的对象
+     * @param tag      调用位置对应的TAG，只在第一次遇到该位置时使用
+     * @param template 格式化模板（String.format语法），为null时参数直接拼接
+     */
+    public void write(int priority, Object siteKey, String tag, String template, Object[] args, Throwable throwable) {
+        long timeMillis = System.currentTimeMillis();
+        long threadId = Thread.currentThread().getId();
+        synchronized (file) {
+            Site site = internSite(siteKey, tag, template);
+            ByteBuffer log = encodeLog(timeMillis, priority, threadId, site.id, args, throwable);
+            ByteBuffer siteDefine = encodeSite(site);
+            int capacity = file.getSegmentCapacity();
+            if (log.remaining() > capacity - siteDefine.remaining()) {
+                // 单条记录超过分段容量，无法完整写入
+                return;
+            }
+            if (!file.ensureCapacity(siteDefine.remaining() + log.remaining())) {
+                return;
+            }
+            int segment = file.getSegmentIndex();
+            if (site.definedSegment != segment) {
+                // 新分段或新的调用位置，需要（重新）定义
+                file.append(siteDefine);
+                site.definedSegment = segment;
+            }
+            file.append(log);
+        }
+    }
+
+    private Site internSite(Object siteKey, String tag, String template) {
+        Site site = sites.get(lookupKey.set(siteKey, template));
+        if (site != null) {
+            return site;
+        }
+        int id;
+        if (sites.size() >= MAX_SITES) {
+            // 淘汰最久未使用的调用位置，复用它的id
+            Iterator<Map.Entry<SiteKey, Site>> iterator = sites.entrySet().iterator();
+            id = iterator.next().getValue().id;
+            iterator.remove();
+        } else {
+            id = nextSiteId++;
+        }
+        site = new Site(id, tag, template);
+        sites.put(new SiteKey().set(siteKey, template), site);
+        return site;
+    }
+
+    private ByteBuffer encodeSite(Site site) {
+        siteBuffer.clear();
+        siteBuffer = putVarint(siteBuffer, site.id);
+        siteBuffer = putString(siteBuffer, site.tag);
+        siteBuffer = putString(siteBuffer, site.template);
+        siteBuffer.flip();
+        siteBuffer = frame(siteBuffer, TYPE_SITE);
+        return siteBuffer;
+    }
+
+    private ByteBuffer encodeLog(long timeMillis, int priority, long threadId, int siteId, Object[] args, Throwable throwable) {
+        int argCount = args == null ? 0 : Math.min(args.length, MAX_ARG_COUNT - 1);
+        ByteBuffer buffer = logBuffer;
+        buffer.clear();
+        buffer = ensure(buffer, 8 + 1);
+        buffer.putLong(timeMillis);
+        buffer.put((byte) priority);
+        buffer = putVarint(buffer, threadId);
+        buffer = putVarint(buffer, siteId);
+        buffer = ensure(buffer, 1);
+        buffer.put((byte) (throwable == null ? argCount : argCount + 1));
+        for (int i = 0; i < argCount; i++) {
+            buffer = putArg(buffer, args[i]);
+        }
+        if (throwable != null) {
+            // 异常堆栈只能在打日志时转成文本
+            buffer = putArg(buffer, Log.getStackTraceString(throwable));
+        }
+        buffer.flip();
+        logBuffer = frame(buffer, TYPE_LOG);
+        return logBuffer;
+    }
+
+    // 在内容前加上类型和长度
+    private static ByteBuffer frame(ByteBuffer payload, byte type) {
+        int length = payload.remaining();
+        int headerSize = 1 + varintSize(length);
+        ByteBuffer buffer = payload;
+        if (buffer.capacity() < length + headerSize) {
+            buffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, length + headerSize));
+        }
+        // 内容整体后移，空出头部
+        System.arraycopy(payload.array(), 0, buffer.array(), headerSize, length);
+        buffer.clear();
+        buffer.put(type);
+        putVarint(buffer, length);
+        buffer.position(0);
+        buffer.limit(headerSize + length);
+        return buffer;
+    }
+
+    private static ByteBuffer putArg(ByteBuffer buffer, Object arg) {
+        buffer = ensure(buffer, 1 + 10);
+        if (arg == null) {
+            buffer.put(ARG_NULL);
+        } else if (arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            buffer.put(ARG_INT);
+            buffer = putVarint(buffer, zigzag(((Number) arg).longValue()));
+        } else if (arg instanceof Long) {
+            buffer.put(ARG_LONG);
+            buffer = putVarint(buffer, zigzag((Long) arg));
+        } else if (arg instanceof Double) {
+            buffer.put(ARG_DOUBLE);
+            buffer.putDouble((Double) arg);
+        } else if (arg instanceof Float) {
+            buffer.put(ARG_FLOAT);
+            buffer.putFloat((Float) arg);
+        } else if (arg instanceof Boolean) {
+            buffer.put(ARG_BOOLEAN);
+            buffer.put((byte) ((Boolean) arg ? 1 : 0));
+        } else if (arg instanceof Character) {
+            buffer.put(ARG_CHAR);
+            buffer = putVarint(buffer, (Character) arg);
+        } else {
+            buffer.put(ARG_STRING);
+            buffer = putString(buffer, arg instanceof String ? (String) arg : String.valueOf(arg));
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            return putVarint(buffer, 0);
+        }
+        int length = Math.min(value.length(), MAX_STRING_LENGTH);
+        int byteCount = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            byteCount += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        buffer = putVarint(buffer, byteCount + 1);
+        buffer = ensure(buffer, byteCount);
+        // 直接按字符编码，不生成中间byte[]；代理对按两个3字节序列编码（CESU-8），解码端做对应处理
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer putVarint(ByteBuffer buffer, long value) {
+        buffer = ensure(buffer, 10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+        return buffer;
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int extra) {
+        if (buffer.remaining() >= extra) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + extra));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+}
@@ -0,0 +1,202 @@
+package com.test;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 按尺寸复用的Bitmap池
+ * 相同宽高和格式的Bitmap直接复用，总内存超过上限时淘汰最久未使用的。
+ * 默认共用一个进程级的池，多个BlurView之间可以互相复用。
+ *
+ *  Bitmap bitmap = BitmapPool.getDefault().get(width, height, Bitmap.Config.ARGB_8888);
+ *  ...
+ *  BitmapPool.getDefault().put(bitmap);
+ */
+public class BitmapPool {
+    // 默认上限：可用内存的1/16，最多16MB
+    private static final long DEFAULT_MAX_SIZE = Math.min(Runtime.getRuntime().maxMemory() / 16, 16 * 1024 * 1024);
+    private static volatile BitmapPool sDefault;
+    // Bitmap -> 它引用的外部缓冲区（如ImageReader的Image），Bitmap放回池中回收时关闭
+    private static final Map<Bitmap, AutoCloseable> ATTACHED = new WeakHashMap<>();
+
+    // 按放入顺序排列，最前面的最久未使用
+    private final LinkedHashMap<Bitmap, Key> lru = new LinkedHashMap<>();
+    private final Map<Key, ArrayDeque<Bitmap>> groups = new HashMap<>();
+    private long maxSize;
+    private long currentSize;
+
+    private static final class Key {
+        final int width;
+        final int height;
+        final Bitmap.Config config;
+
+        Key(int width, int height, Bitmap.Config config) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return width == key.width && height == key.height && config == key.config;
+        }
+
+        @Override
+        public int hashCode() {
+            return (width * 31 + height) * 31 + config.hashCode();
+        }
+    }
+
+    /**
+     * @param maxSize 池中Bitmap最多占用的字节数
+     */
+    public BitmapPool(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 进程共用的池
+     */
+    public static BitmapPool getDefault() {
+        if (sDefault == null) {
+            synchronized (BitmapPool.class) {
+                if (sDefault == null) {
+                    sDefault = new BitmapPool(DEFAULT_MAX_SIZE);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 取出一张可写的Bitmap，池中没有相同尺寸的时新建，内容为全透明
+     */
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = null;
+        ArrayDeque<Bitmap> group = groups.get(new Key(width, height, config));
+        if (group != null) {
+            // 取最近放入的
+            bitmap = group.pollLast();
+            if (bitmap != null) {
+                lru.remove(bitmap);
+                currentSize -= bitmap.getAllocationByteCount();
+            }
+        }
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+        bitmap.eraseColor(0);
+        return bitmap;
+    }
+
+    /**
+     * 关联Bitmap引用的外部资源，Bitmap放回任意一个池时关闭
+     */
+    static void attach(Bitmap bitmap, AutoCloseable resource) {
+        synchronized (ATTACHED) {
+            ATTACHED.put(bitmap, resource);
+        }
+    }
+
+    private static void closeAttached(Bitmap bitmap) {
+        AutoCloseable resource;
+        synchronized (ATTACHED) {
+            resource = ATTACHED.remove(bitmap);
+        }
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    /**
+     * 放回不再使用的Bitmap，不能复用的会被直接回收
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+        if (bitmap.isRecycled()) {
+            closeAttached(bitmap);
+            return;
+        }
+        if (lru.containsKey(bitmap)) {
+            // 已经在池中
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || bitmap.getConfig() == null || isHardware(bitmap) || size > maxSize) {
+            bitmap.recycle();
+            closeAttached(bitmap);
+            return;
+        }
+        Key key = new Key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> group = groups.get(key);
+        if (group == null) {
+            group = new ArrayDeque<>();
+            groups.put(key, group);
+        }
+        group.addLast(bitmap);
+        lru.put(bitmap, key);
+        currentSize += size;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * 修改内存上限，超出的部分立即淘汰
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getCurrentSize() {
+        return currentSize;
+    }
+
+    /**
+     * 清空并回收池中所有Bitmap，内存紧张时（onTrimMemory）调用
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(long size) {
+        Iterator<Map.Entry<Bitmap, Key>> iterator = lru.entrySet().iterator();
+        while (currentSize > size && iterator.hasNext()) {
+            Map.Entry<Bitmap, Key> eldest = iterator.next();
+            iterator.remove();
+            Bitmap bitmap = eldest.getKey();
+            ArrayDeque<Bitmap> group = groups.get(eldest.getValue());
+            // 同一尺寸中最早放入的就是全局最早放入的
+            group.pollFirst();
+            if (group.isEmpty()) {
+                groups.remove(eldest.getValue());
+            }
+            currentSize -= bitmap.getAllocationByteCount();
+            bitmap.recycle();
+        }
+    }
+
+    private static boolean isHardware(Bitmap bitmap) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                && bitmap.getConfig() == Bitmap.Config.HARDWARE;
+    }
+}
@@ -0,0 +1,420 @@
+package com.test;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.graphics.Rect;
+import android.os.Trace;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 同一个父视图下多个BlurView共用的模糊背景
+ * 缩放比例、模糊半径和算法相同的BlurView共用一个实例，每帧（或每次布局）只截一次图、模糊一次，
+ * 截图范围是所有BlurView的并集，每个BlurView绘制时只取自己对应的区域。
+ *
+ *  流程：
+ *  主线程 onPreDraw  把父视图的绘制录制成Picture（跳过所有BlurView）
+ *  后台线程          光栅化到缩小的Bitmap，增量模糊
+ *  主线程            替换模糊结果，通知BlurView重绘；新结果出来之前继续显示上一张
+ *
+ *  只在主线程调用
+ */
+class BlurBackdrop {
+    // 所有BlurBackdrop共用一个后台线程，按提交顺序处理
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BlurView-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 只在WORKER线程中使用
+    private static final Canvas WORKER_CANVAS = new Canvas();
+    private static final Map<ViewGroup, List<BlurBackdrop>> BACKDROPS = new WeakHashMap<>();
+    // 正在录制父视图，期间所有BlurView都不绘制，避免截进自己或互相截到对方
+    private static boolean sCapturing = false;
+
+    // 实时模糊
+    private static final float MIN_LIVE_SCALE = 0.05f;
+    // 耗时连续低于预算一半这么多帧后才提高缩放比例，避免来回跳动
+    private static final int LIVE_SCALE_UP_FRAMES = 30;
+
+    // 父视图作为WeakHashMap的key，这里不能强引用
+    private final WeakReference<ViewGroup> parentRef;
+    private final float downScaleFactor;
+    private final float blurRadius;
+    // BlurView指定的算法，为null时按系统版本选择
+    private final BlurEngine customEngine;
+    private final BlurEngine engine;
+    private final BitmapPool pool;
+    private final List<BlurView> members = new ArrayList<>();
+    // 只在WORKER线程中使用
+    private final IncrementalBlur incrementalBlur = new IncrementalBlur();
+    private final ViewTreeObserver.OnPreDrawListener preDrawListener = () -> {
+        onPreDraw();
+        return true;
+    };
+    private ViewTreeObserver observer;
+
+    // 当前显示的模糊结果，以及它对应父视图中的区域和缩放比例
+    private Bitmap bitmap;
+    private final Rect bitmapRect = new Rect();
+    private float bitmapScale;
+
+    // 每次截图时加1，后台返回的结果不是最新一次请求的就丢弃
+    private int generation = 0;
+    private boolean captureRequested = false;
+    private boolean inFlight = false;
+    private boolean pending = false;
+    private final Rect captureRect = new Rect();
+
+    // 实时模式当前实际使用的缩放比例，不超过downScaleFactor
+    private float liveScale;
+    private int liveFastFrames = 0;
+
+    private BlurBackdrop(ViewGroup parent, float downScaleFactor, float blurRadius, BlurEngine customEngine, BitmapPool pool) {
+        this.parentRef = new WeakReference<>(parent);
+        this.downScaleFactor = downScaleFactor;
+        this.blurRadius = blurRadius;
+        this.customEngine = customEngine;
+        this.engine = customEngine != null ? customEngine : BlurEngines.create(parent.getContext());
+        this.pool = pool;
+        this.liveScale = downScaleFactor;
+    }
+
+    /**
+     * 加入父视图下参数相同的共用背景，没有时新建
+     */
+    static BlurBackdrop join(BlurView view, ViewGroup parent, float downScaleFactor, float blurRadius,
+                             BlurEngine customEngine, BitmapPool pool) {
+        List<BlurBackdrop> list = BACKDROPS.get(parent);
+        if (list == null) {
+            list = new ArrayList<>(1);
+            BACKDROPS.put(parent, list);
+        }
+        BlurBackdrop backdrop = null;
+        for (BlurBackdrop item : list) {
+            if (item.downScaleFactor == downScaleFactor && item.blurRadius == blurRadius
+                    && item.customEngine == customEngine && item.pool == pool) {
+                backdrop = item;
+                break;
+            }
+        }
+        if (backdrop == null) {
+            backdrop = new BlurBackdrop(parent, downScaleFactor, blurRadius, customEngine, pool);
+            list.add(backdrop);
+        }
+        backdrop.add(view);
+        return backdrop;
+    }
+
+    /**
+     * 正在录制父视图，BlurView.draw() 中检查
+     */
+    static boolean isCapturing() {
+        return sCapturing;
+    }
+
+    /**
+     * 退出共用背景，最后一个BlurView退出时释放资源
+     */
+    void leave(BlurView view) {
+        if (!members.remove(view) || !members.isEmpty()) {
+            return;
+        }
+        if (observer != null && observer.isAlive()) {
+            observer.removeOnPreDrawListener(preDrawListener);
+        }
+        observer = null;
+        // 丢弃还在后台处理的结果
+        generation++;
+        if (bitmap != null) {
+            releaseAfterNextFrame(bitmap);
+            bitmap = null;
+        }
+        if (customEngine == null) {
+            // 只释放自己创建的算法，外部指定的可能还有其他地方在用
+            // 在后台线程释放，等正在进行的模糊结束
+            WORKER.execute(engine::release);
+        }
+        ViewGroup parent = parentRef.get();
+        List<BlurBackdrop> list = parent == null ? null : BACKDROPS.get(parent);
+        if (list != null) {
+            list.remove(this);
+            if (list.isEmpty()) {
+                BACKDROPS.remove(parent);
+            }
+        }
+    }
+
+    /**
+     * 下一帧绘制前重新截图，同一帧内多次调用只截一次
+     */
+    void requestCapture() {
+        captureRequested = true;
+    }
+
+    /**
+     * 当前的模糊结果，还没有时为null
+     */
+    Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * 计算view在模糊结果中对应的区域
+     * @return false表示模糊结果中没有这个区域
+     */
+    boolean getSourceRect(View view, Rect out) {
+        if (bitmap == null) {
+            return false;
+        }
+        out.set(Math.round((view.getLeft() - bitmapRect.left) * bitmapScale),
+                Math.round((view.getTop() - bitmapRect.top) * bitmapScale),
+                Math.round((view.getRight() - bitmapRect.left) * bitmapScale),
+                Math.round((view.getBottom() - bitmapRect.top) * bitmapScale));
+        return out.intersect(0, 0, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    /**
+     * BlurView切换实时模式后调用
+     */
+    void onLiveChanged() {
+        liveScale = downScaleFactor;
+        liveFastFrames = 0;
+        requestCapture();
+    }
+
+    private void add(BlurView view) {
+        if (members.contains(view)) {
+            return;
+        }
+        members.add(view);
+        if (observer == null) {
+            ViewGroup parent = parentRef.get();
+            if (parent != null) {
+                observer = parent.getViewTreeObserver();
+                observer.addOnPreDrawListener(preDrawListener);
+            }
+        }
+        requestCapture();
+    }
+
+    private boolean isLive() {
+        for (int i = 0; i < members.size(); i++) {
+            if (members.get(i).isLiveBlur()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getFrameBudgetNanos() {
+        long budget = Long.MAX_VALUE;
+        for (int i = 0; i < members.size(); i++) {
+            budget = Math.min(budget, members.get(i).getFrameBudgetNanos());
+        }
+        return budget;
+    }
+
+    private void onPreDraw() {
+        boolean live = isLive();
+        if (!captureRequested && !live) {
+            return;
+        }
+        if (inFlight) {
+            // 上一次还没处理完，处理完后再截
+            pending = true;
+            return;
+        }
+        ViewGroup parent = parentRef.get();
+        if (parent == null || parent.getWidth() <= 0 || parent.getHeight() <= 0) {
+            return;
+        }
+        // 所有BlurView的并集
+        captureRect.setEmpty();
+        for (int i = 0; i < members.size(); i++) {
+            BlurView view = members.get(i);
+            if (view.getWidth() > 0 && view.getHeight() > 0) {
+                captureRect.union(view.getLeft(), view.getTop(), view.getRight(), view.getBottom());
+            }
+        }
+        final float scale = live ? liveScale : downScaleFactor;
+        final int width = Math.round(captureRect.width() * scale);
+        final int height = Math.round(captureRect.height() * scale);
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        captureRequested = false;
+
+        long start = System.nanoTime();
+        Trace.beginSection("BlurView:capture");
+        final Picture picture = recordDownscaledPicture(parent, captureRect, scale, width, height);
+        Trace.endSection();
+        final long recordNanos = System.nanoTime() - start;
+
+        inFlight = true;
+        final int requestGeneration = ++generation;
+        final Rect rect = new Rect(captureRect);
+        // 半径按缩放比例同步调整，保持视觉上的模糊程度
+        final float radius = blurRadius * scale / downScaleFactor;
+        final boolean adjust = live;
+        WORKER.execute(() -> {
+            // 各阶段耗时，在主线程交给BlurMetrics
+            final long[] stageNanos = new long[BlurMetrics.STAGE_COUNT];
+            stageNanos[BlurMetrics.STAGE_CAPTURE] = recordNanos;
+            long workStart = System.nanoTime();
+            Trace.beginSection("BlurView:downscale");
+            Bitmap captured = pool.get(width, height, Bitmap.Config.ARGB_8888);
+            WORKER_CANVAS.setBitmap(captured);
+            picture.draw(WORKER_CANVAS);
+            WORKER_CANVAS.setBitmap(null);
+            Trace.endSection();
+            long blurStart = System.nanoTime();
+            stageNanos[BlurMetrics.STAGE_DOWNSCALE] = blurStart - workStart;
+            Trace.beginSection("BlurView:blur");
+            // 内容没有变化时返回null
+            Bitmap blurred = incrementalBlur.process(captured, radius, engine, pool);
+            Trace.endSection();
+            long blurEnd = System.nanoTime();
+            stageNanos[BlurMetrics.STAGE_BLUR] = blurEnd - blurStart;
+            long totalNanos = recordNanos + blurEnd - workStart;
+            parent.post(() -> {
+                Trace.beginSection("BlurView:upload");
+                onBlurFinished(requestGeneration, blurred, rect, scale, adjust ? totalNanos : -1);
+                Trace.endSection();
+                stageNanos[BlurMetrics.STAGE_UPLOAD] = System.nanoTime() - blurEnd;
+                dispatchMetrics(stageNanos);
+            });
+        });
+    }
+
+    /**
+     * 后台模糊完成，在主线程调用
+     * @param totalNanos 实时模式下本次的总耗时，非实时模式为-1
+     */
+    private void onBlurFinished(int requestGeneration, Bitmap blurred, Rect rect, float scale, long totalNanos) {
+        inFlight = false;
+        if (requestGeneration != generation) {
+            // 已经退出
+            if (blurred != null) {
+                pool.put(blurred);
+            }
+            return;
+        }
+        if (totalNanos >= 0) {
+            adjustLiveScale(totalNanos);
+        }
+        boolean moved = !rect.equals(bitmapRect);
+        if (blurred != null || moved) {
+            if (blurred != null) {
+                Bitmap old = bitmap;
+                bitmap = blurred;
+                if (old != null && old != blurred) {
+                    releaseAfterNextFrame(old);
+                }
+            }
+            bitmapRect.set(rect);
+            bitmapScale = scale;
+            for (int i = 0; i < members.size(); i++) {
+                members.get(i).onBackdropUpdated();
+            }
+        }
+        if (pending && !members.isEmpty()) {
+            // 处理期间内容可能又变了，下一帧再截一次
+            pending = false;
+            requestCapture();
+            members.get(0).invalidate();
+        }
+    }
+
+    /**
+     * 成员当前的显示列表还在绘制被替换的Bitmap，等下一帧重新录制后再放回池中，
+     * 避免后台线程复用或池回收时画面出错
+     */
+    private void releaseAfterNextFrame(final Bitmap old) {
+        final ViewGroup parent = parentRef.get();
+        if (parent == null) {
+            pool.put(old);
+            return;
+        }
+        // 下一帧的动画回调在绘制之前，再post一次到这一帧绘制完成之后
+        parent.postOnAnimation(() -> parent.post(() -> pool.put(old)));
+    }
+
+    /**
+     * 把各阶段耗时交给成员的BlurMetrics，共用同一个BlurMetrics的只记录一次
+     */
+    private void dispatchMetrics(long[] stageNanos) {
+        for (int i = 0; i < members.size(); i++) {
+            BlurMetrics metrics = members.get(i).getMetrics();
+            if (metrics == null || isDispatched(metrics, i)) {
+                continue;
+            }
+            for (int stage = 0; stage < BlurMetrics.STAGE_DRAW; stage++) {
+                metrics.onStage(stage, stageNanos[stage]);
+            }
+        }
+    }
+
+    private boolean isDispatched(BlurMetrics metrics, int index) {
+        for (int i = 0; i < index; i++) {
+            if (members.get(i).getMetrics() == metrics) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 根据单帧耗时调整实时模式的缩放比例
+     */
+    private void adjustLiveScale(long totalNanos) {
+        long budget = getFrameBudgetNanos();
+        if (totalNanos > budget) {
+            liveScale = Math.max(MIN_LIVE_SCALE, liveScale * 0.8f);
+            liveFastFrames = 0;
+        } else if (totalNanos < budget / 2 && liveScale < downScaleFactor) {
+            if (++liveFastFrames >= LIVE_SCALE_UP_FRAMES) {
+                liveScale = Math.min(downScaleFactor, liveScale * 1.25f);
+                liveFastFrames = 0;
+            }
+        } else {
+            liveFastFrames = 0;
+        }
+    }
+
+    /**
+     * 裁剪View，把View的绘制录制成Picture，同时进行压缩
+     * 只录制绘制命令，不做光栅化，光栅化在后台线程 picture.draw() 时完成
+     * 录制期间BlurView的draw()直接返回，截图中不包含BlurView
+     * @param view
+     * @param crop
+     * @param downscaleFactor 压缩比例
+     * @param width  压缩后的宽度
+     * @param height 压缩后的高度
+     * @return
+     */
+    static Picture recordDownscaledPicture(View view, Rect crop, float downscaleFactor, int width, int height) {
+        Picture picture = new Picture();
+        Canvas canvas = picture.beginRecording(width, height);
+        canvas.scale(downscaleFactor, downscaleFactor);
+        canvas.translate(-crop.left, -crop.top);
+        sCapturing = true;
+        try {
+            view.draw(canvas);
+        } finally {
+            sCapturing = false;
+            picture.endRecording();
+        }
+        return picture;
+    }
+}
@@ -0,0 +1,29 @@
+package com.test;
+
+import android.graphics.Bitmap;
+
+/**
+ * 模糊算法接口
+ *
+ *  实现：
+ *  RenderEffectBlurEngine  Android 12+ 使用 RenderEffect 在GPU上模糊
+ *  StackBlurEngine         多线程 Java StackBlur，所有版本可用
+ *  KawaseBlurEngine        Dual Kawase，大半径时耗时基本不变
+ *  ReferenceBlurEngine     单线程精确高斯模糊，只用于测试对比
+ *
+ *  BlurEngines.create(context) 返回当前设备上最快的实现
+ */
+public interface BlurEngine {
+    /**
+     * 模糊处理
+     * @param input  需要模糊的图片，不会被回收
+     * @param radius 模糊半径（像素）
+     * @return 模糊后的图片，可能就是input本身（原地模糊）
+     */
+    Bitmap blur(Bitmap input, float radius);
+
+    /**
+     * 释放占用的资源，释放后再次调用blur会重新创建
+     */
+    void release();
+}
@@ -0,0 +1,27 @@
+package com.test;
+
+import android.content.Context;
+import android.os.Build;
+
+/**
+ * 根据运行环境选择模糊算法
+ */
+public final class BlurEngines {
+    private BlurEngines() {
+    }
+
+    /**
+     * 创建当前设备上最快的模糊实现
+     */
+    public static BlurEngine create(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            try {
+                return new RenderEffectBlurEngine();
+            } catch (Throwable e) {
+                // 个别设备GPU初始化失败时退回CPU实现
+            }
+        }
+        // 半径超过25时用Dual Kawase，耗时不随半径增长
+        return new KawaseBlurEngine(new StackBlurEngine());
+    }
+}
@@ -0,0 +1,160 @@
+package com.test;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+
+/**
+ * 默认的毛玻璃耗时统计
+ * 每个阶段以及每帧总耗时各保留最近 WINDOW 次，查询时计算p50/p95/p99；
+ * 一帧的总耗时为同一个 Choreographer 帧内所有主线程阶段（capture、draw）之和，
+ * 共用统计的多个BlurView在同一帧中的绘制合计为一帧，下一帧开始时结束上一帧并检查帧预算。
+ * downscale、blur、upload 在后台线程或跨线程，只统计各自的耗时，不计入帧预算。
+ * GLBlurView 的 draw 在GL线程合成，同样计入它所在统计的帧总耗时。
+ * 只在主线程使用
+ *
+ *  // 同一页面的BlurView共用一个统计，主线程每帧预算8ms
+ *  BlurFrameStats stats = new BlurFrameStats(8);
+ *  stats.setOnBudgetExceededListener((s, frameNanos) -> Log.w("Blur", s.toString()));
+ *  binding.blur1.setMetrics(stats);
+ *  binding.blur2.setMetrics(stats);
+ */
+public class BlurFrameStats implements BlurMetrics {
+    private static final String TAG = "BlurFrameStats";
+    // 滚动窗口大小
+    public static final int WINDOW = 120;
+    // 不检查帧预算
+    public static final float NO_BUDGET = 0;
+    // 每帧总耗时在 samples 中的下标
+    private static final int FRAME = STAGE_COUNT;
+    private static final String[] NAMES = {"capture", "downscale", "blur", "upload", "draw", "frame"};
+
+    public interface OnBudgetExceededListener {
+        void onBudgetExceeded(BlurFrameStats stats, long frameNanos);
+    }
+
+    private final long[][] samples = new long[STAGE_COUNT + 1][WINDOW];
+    private final int[] counts = new int[STAGE_COUNT + 1];
+    private final long[] sorted = new long[WINDOW];
+    private final long budgetNanos;
+    private long currentFrameNanos = 0;
+    // 本帧有主线程阶段，已注册下一帧回调
+    private boolean frameScheduled = false;
+    private final Choreographer.FrameCallback frameEndCallback = frameTimeNanos -> endFrame();
+    private int frames = 0;
+    private int overBudgetFrames = 0;
+    private OnBudgetExceededListener listener;
+
+    public BlurFrameStats() {
+        this(NO_BUDGET);
+    }
+
+    /**
+     * @param budgetMillis 主线程每帧总耗时的预算，超出时通知listener，没有listener时打印警告
+     */
+    public BlurFrameStats(float budgetMillis) {
+        this.budgetNanos = (long) (budgetMillis * 1_000_000L);
+    }
+
+    public void setOnBudgetExceededListener(OnBudgetExceededListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void onStage(int stage, long nanos) {
+        add(stage, nanos);
+        if (stage != STAGE_CAPTURE && stage != STAGE_DRAW) {
+            return;
+        }
+        currentFrameNanos += nanos;
+        if (!frameScheduled) {
+            // 本帧内的其他阶段都在下一帧回调之前记录
+            frameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(frameEndCallback);
+        }
+    }
+
+    private void endFrame() {
+        frameScheduled = false;
+        long frameNanos = currentFrameNanos;
+        currentFrameNanos = 0;
+        add(FRAME, frameNanos);
+        frames++;
+        if (budgetNanos > 0 && frameNanos > budgetNanos) {
+            overBudgetFrames++;
+            if (listener != null) {
+                listener.onBudgetExceeded(this, frameNanos);
+            } else {
+                Log.w(TAG, "frame " + frameNanos / 1000 + "us over budget " + budgetNanos / 1000 + "us");
+            }
+        }
+    }
+
+    /**
+     * 阶段耗时的百分位数
+     * @param stage      STAGE_*
+     * @param percentile 0~100
+     * @return 纳秒，没有数据时为0
+     */
+    public long getPercentile(int stage, float percentile) {
+        return percentile(stage, percentile);
+    }
+
+    /**
+     * 每帧总耗时的百分位数
+     */
+    public long getFramePercentile(float percentile) {
+        return percentile(FRAME, percentile);
+    }
+
+    public int getFrameCount() {
+        return frames;
+    }
+
+    public int getOverBudgetFrameCount() {
+        return overBudgetFrames;
+    }
+
+    public void reset() {
+        if (frameScheduled) {
+            Choreographer.getInstance().removeFrameCallback(frameEndCallback);
+            frameScheduled = false;
+        }
+        Arrays.fill(counts, 0);
+        currentFrameNanos = 0;
+        frames = 0;
+        overBudgetFrames = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("BlurFrameStats{");
+        for (int i = 0; i < NAMES.length; i++) {
+            builder.append(NAMES[i])
+                    .append(" p50=").append(percentile(i, 50) / 1000)
+                    .append(" p95=").append(percentile(i, 95) / 1000)
+                    .append(" p99=").append(percentile(i, 99) / 1000)
+                    .append("us, ");
+        }
+        return builder.append("overBudget=").append(overBudgetFrames).append('/').append(frames).append('}').toString();
+    }
+
+    private void add(int index, long nanos) {
+        int count = counts[index];
+        samples[index][count % WINDOW] = nanos;
+        // 窗口满后在 WINDOW~2*WINDOW 之间循环，避免溢出
+        counts[index] = count + 1 < 2 * WINDOW ? count + 1 : WINDOW;
+    }
+
+    private long percentile(int index, float percentile) {
+        int size = Math.min(counts[index], WINDOW);
+        if (size == 0) {
+            return 0;
+        }
+        System.arraycopy(samples[index], 0, sorted, 0, size);
+        Arrays.sort(sorted, 0, size);
+        int rank = (int) Math.ceil(percentile / 100f * size) - 1;
+        return sorted[Math.max(0, Math.min(size - 1, rank))];
+    }
+}
@@ -0,0 +1,30 @@
+package com.test;
+
+/**
+ * 毛玻璃各阶段耗时统计
+ * 耗时单位为纳秒，都在主线程回调。
+ * BlurView 默认每个视图一个 BlurFrameStats，也可以通过 setMetrics() 让同一页面的BlurView共用一个，
+ * 按页面统计和检查主线程的帧预算（同一帧内的录制和绘制合计）。
+ *
+ *  各阶段同时用 Trace.beginSection() 标记，可以在 Perfetto/systrace 中查看：
+ *  BlurView:capture   主线程录制父视图
+ *  BlurView:downscale 后台线程光栅化到缩小的Bitmap
+ *  BlurView:blur      后台线程模糊
+ *  BlurView:upload    GLBlurView上传纹理；BlurView中为模糊结果交给主线程并替换的耗时
+ *  BlurView:draw      主线程绘制
+ */
+public interface BlurMetrics {
+    int STAGE_CAPTURE = 0;
+    int STAGE_DOWNSCALE = 1;
+    int STAGE_BLUR = 2;
+    int STAGE_UPLOAD = 3;
+    int STAGE_DRAW = 4;
+    int STAGE_COUNT = 5;
+
+    /**
+     * 记录一个阶段的耗时
+     * @param stage STAGE_*
+     * @param nanos
+     */
+    void onStage(int stage, long nanos);
+}
@@ -6,19 +6,17 @@ import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Matrix;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
-import android.renderscript.Allocation;
-import android.renderscript.Element;
-import android.renderscript.RenderScript;
-import android.renderscript.ScriptIntrinsicBlur;
+import android.os.Build;
+import android.os.Trace;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewOutlineProvider;
 
 
 /**
@@ -29,6 +27,7 @@ import android.view.ViewGroup;
  *         <attr name="downScale" format="float" />
  *         <attr name="maskColor" format="color" />
  *         <attr name="blurRadius" format="float" />
+ *         <attr name="liveBlur" format="boolean" />
  *     </declare-styleable>
  *
  *
@@ -43,24 +42,57 @@ import android.view.ViewGroup;
  *  binding.blur.setBlurRadius(2);
  *  binding.blur.setMaskColor(Color.parseColor("#66FFFFFF"));
  *
+ *  模糊算法默认由 BlurEngines.create() 按系统版本选择，也可以通过 setBlurEngine() 指定
+ *
+ *  截图和模糊由 BlurBackdrop 完成：同一个父视图下参数相同的多个BlurView只截一次图、模糊一次，
+ *  主线程只录制父视图的绘制，缩放和模糊在后台线程完成后再刷新，新的模糊结果出来之前继续显示上一张。
+ *
+ *  实时模糊（下层内容滚动时同步更新）
+ *  binding.blur.setLiveBlur(true);
+ *  每帧绘制前截图，只在下层内容变化时重新模糊变化的部分；
+ *  单帧耗时超过 setFrameBudget() 的预算时自动降低缩放比例和模糊半径，耗时充裕时再逐步恢复。
+ *
+ *  各阶段耗时由 BlurMetrics 统计（默认 BlurFrameStats，p50/p95/p99），并用Trace标记，可在Perfetto中查看。
+ *
  */
 public class BlurView extends View {
-    private Bitmap bitmap = null;
+    // 按圆角裁剪，比clipPath开销小且有抗锯齿
+    private static final ViewOutlineProvider ROUND_RECT_OUTLINE = new ViewOutlineProvider() {
+        @Override
+        public void getOutline(View view, Outline outline) {
+            outline.setRoundRect(0, 0, view.getWidth(), view.getHeight(), ((BlurView) view).mRadius);
+        }
+    };
+
     private Paint paint = null;
     private BitmapFactory.Options options = null;
-    private long lastActionTime = 0;
     //缩减比例,太小会失真
     private float downScaleFactor = 0.8f;
     //视图圆角处理
     private float mRadius = 0;
     //为了使效果更接近IOS的效果，最后绘制一个蒙板盖上面。
     private int maskColor = 0;
-    //模糊程度, 25f是最大模糊度, 越大绘制也越慢。
+    //模糊程度，超过25时使用多级缩放模糊，耗时基本不随半径增长
     private float mBlurRadius = 0;
-    // 创建RenderScript内核对象
-    private RenderScript rs = null;
-    // 创建一个模糊效果的RenderScript的工具对象
-    private ScriptIntrinsicBlur blurScript = null;
+    // 指定的模糊算法，为null时由BlurBackdrop按系统版本选择
+    private BlurEngine blurEngine = null;
+    // blurBitmap() 未指定算法时使用
+    private BlurEngine defaultEngine = null;
+    // 复用截图和模糊用的Bitmap，默认多个BlurView共用
+    private BitmapPool bitmapPool = BitmapPool.getDefault();
+    // 实时模糊
+    private boolean liveBlur = false;
+    // 每帧截图+模糊的耗时预算
+    private long frameBudgetNanos = 8_000_000L;
+    // 当前所在的共用模糊背景
+    private BlurBackdrop backdrop = null;
+    // 各阶段耗时统计
+    private BlurMetrics metrics = new BlurFrameStats();
+    // 绘制用的区域和圆角路径，尺寸或圆角变化时更新，onDraw中不再创建对象
+    private final Rect srcRect = new Rect();
+    private final Rect dstRect = new Rect();
+    private final RectF clipRect = new RectF();
+    private final Path clipPath = new Path();
 
     private int alpha = 255;
 
@@ -87,13 +119,56 @@ public class BlurView extends View {
 
         paint = new Paint();
         options = new BitmapFactory.Options();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setOutlineProvider(ROUND_RECT_OUTLINE);
+        }
         //NORMAL: 内外都模糊绘制
         //SOLID: 内部正常绘制，外部模糊
         //INNER: 内部模糊，外部不绘制
 //        paint.setMaskFilter(new BlurMaskFilter(50, BlurMaskFilter.Blur.NORMAL));
+    }
+
+    /**
+     * 指定模糊算法，默认使用 BlurEngines.create() 的结果
+     * 指定了不同算法的BlurView不会共用模糊背景；指定的算法可以被多个BlurView共用，需要调用方自己 release()
+     * @param engine
+     */
+    public void setBlurEngine(BlurEngine engine) {
+        this.blurEngine = engine;
+        updateBackdrop();
+    }
+
+    /**
+     * 实时模糊，下层内容变化时自动更新
+     * @param live
+     */
+    public void setLiveBlur(boolean live) {
+        if (liveBlur == live) {
+            return;
+        }
+        liveBlur = live;
+        if (backdrop != null) {
+            backdrop.onLiveChanged();
+        }
+        invalidate();
+    }
+
+    /**
+     * 实时模糊时每帧截图和模糊的耗时预算，超出时降低缩放比例和模糊半径
+     * 共用模糊背景的BlurView取其中最小的预算
+     * @param millis
+     */
+    public void setFrameBudget(float millis) {
+        this.frameBudgetNanos = (long) (millis * 1_000_000L);
+    }
 
-        rs = RenderScript.create(getContext());
-        blurScript = ScriptIntrinsicBlur.create(rs, Element.U8_4(rs));
+    /**
+     * 指定Bitmap池，默认使用 BitmapPool.getDefault()
+     * @param pool
+     */
+    public void setBitmapPool(BitmapPool pool) {
+        this.bitmapPool = pool;
+        updateBackdrop();
     }
 
     /**
@@ -109,13 +184,50 @@ public class BlurView extends View {
      * @param radius
      */
     public void setBlurRadius(int radius) {
+        if (this.mBlurRadius == radius) {
+            return;
+        }
         this.mBlurRadius = radius;
+        updateBackdrop();
+    }
+
+    /**
+     * 设置圆角
+     * @param radius
+     */
+    public void setCornerRadius(float radius) {
+        if (this.mRadius == radius) {
+            return;
+        }
+        this.mRadius = radius;
+        updateCorner();
+        invalidate();
     }
 
     public void setAlpha(int alpha) {
         this.alpha = alpha;
     }
 
+    /**
+     * 指定耗时统计，默认每个BlurView一个 BlurFrameStats；同一页面共用一个可以按页面统计帧预算
+     * @param metrics 为null时不统计
+     */
+    public void setMetrics(BlurMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public BlurMetrics getMetrics() {
+        return metrics;
+    }
+
+    boolean isLiveBlur() {
+        return liveBlur;
+    }
+
+    long getFrameBudgetNanos() {
+        return frameBudgetNanos;
+    }
+
     private void getAttr(Context context, AttributeSet attrs) {
         TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.BlurView);
         //压缩比例，
@@ -126,30 +238,47 @@ public class BlurView extends View {
         maskColor = typedArray.getColor(R.styleable.BlurView_maskColor, 0);
         //模糊度
         mBlurRadius = typedArray.getFloat(R.styleable.BlurView_blurRadius, 0);
+        //实时模糊
+        liveBlur = typedArray.getBoolean(R.styleable.BlurView_liveBlur, false);
         typedArray.recycle();
+        updateCorner();
     }
 
     /**
-     * 获取需要Bitmap
-     * @param left
-     * @param top
-     * @param right
-     * @param bottom
+     * 更新圆角裁剪：支持时使用轮廓裁剪，否则在onDraw中用clipPath
      */
-    private void setBlurBitmapFromView(int left, int top, int right, int bottom) {
-        //获取父View
-        ViewGroup parent = (ViewGroup) getParent();
-        //将此布局从父View移除,在截图不截进此视图。
-        parent.removeView(this);
-        //获取对应位置的Bitmap对象
-        bitmap = getDownscaledBitmapForView(parent, new Rect(left, top, right, bottom), downScaleFactor);
-        //截完图获取到bitmap之后，再把此View加载到父布局上
-        parent.addView(this);
-        printfActionTime("图片处理");
-
-        //模糊处理
-        bitmap = blurBitmap(bitmap, mBlurRadius);
-        printfActionTime("模糊处理");
+    private void updateCorner() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            setClipToOutline(mRadius > 0);
+            invalidateOutline();
+        }
+        clipPath.reset();
+        if (mRadius > 0) {
+            clipRect.set(0, 0, getWidth(), getHeight());
+            clipPath.addRoundRect(clipRect, mRadius, mRadius, Path.Direction.CW);
+        }
+    }
+
+    /**
+     * 按当前参数加入对应的共用模糊背景，参数变化后调用
+     */
+    private void updateBackdrop() {
+        if (backdrop != null) {
+            backdrop.leave(this);
+            backdrop = null;
+        }
+        ViewGroup parent = getParent() instanceof ViewGroup ? (ViewGroup) getParent() : null;
+        if (parent != null && isAttachedToWindow() && mBlurRadius > 0) {
+            backdrop = BlurBackdrop.join(this, parent, downScaleFactor, mBlurRadius, blurEngine, bitmapPool);
+        }
+        invalidate();
+    }
+
+    /**
+     * 共用模糊背景更新了模糊结果，在主线程调用
+     */
+    void onBackdropUpdated() {
+        invalidate();
     }
 
     @Override
@@ -157,106 +286,93 @@ public class BlurView extends View {
         super.onLayout(changed, left, top, right, bottom);
 //        Log.i("BlurView", "onLayoutBlurView changed=" + changed + " left=" + left + " ,top=" + top + " ,right=" + right + " ,bottom=" + bottom);
 
-        lastActionTime = System.currentTimeMillis();
-        //获取Bitmap从View
+        //下一帧绘制前重新截图，同一父视图下的BlurView只截一次
+        if (backdrop != null) {
+            backdrop.requestCapture();
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        dstRect.set(0, 0, w, h);
+        updateCorner();
+    }
 
-        if (mBlurRadius > 0 && mBlurRadius < 25) {
-            setBlurBitmapFromView(getLeft(), getTop(), getRight(), getBottom());
-        } else {
-            bitmap = null;
+    @Override
+    public void draw(Canvas canvas) {
+        if (BlurBackdrop.isCapturing()) {
+            // 正在录制父视图
+            return;
         }
+        super.draw(canvas);
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        Path mPath = new Path();
+        long start = System.nanoTime();
+        Trace.beginSection("BlurView:draw");
 
         paint.setAlpha(alpha);
 
-        if (mRadius > 0) {
-            mPath.addRoundRect(new RectF(0, 0, getWidth(), getHeight()) , mRadius, mRadius, Path.Direction.CW);
-            canvas.clipPath(mPath);
+        // 轮廓裁剪只在硬件加速时生效
+        if (mRadius > 0 && (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP || !canvas.isHardwareAccelerated())) {
+            canvas.clipPath(clipPath);
         }
 
-        //绘制
-        if (bitmap != null) {
-            canvas.drawBitmap(bitmap, null, new Rect(0, 0, getWidth(), getHeight()), paint);
+        //绘制共用模糊背景中对应自己的区域
+        if (backdrop != null && backdrop.getSourceRect(this, srcRect)) {
+            canvas.drawBitmap(backdrop.getBitmap(), srcRect, dstRect, paint);
         }
-        printfActionTime("绘制完成");
 
         if (maskColor != 0) {
             canvas.drawColor(maskColor);
         }
+        Trace.endSection();
+        if (metrics != null) {
+            metrics.onStage(BlurMetrics.STAGE_DRAW, System.nanoTime() - start);
+        }
     }
 
     /**
      * 模糊处理
      * @param image
      * @param blurRadius
-     * @return
+     * @return 不再显示后交给 BitmapPool.put()，GPU算法的结果在此之前一直占用渲染缓冲区
      */
     public Bitmap blurBitmap(Bitmap image, float blurRadius) {
-        // 创建一张渲染后的输出图片
-        Bitmap outputBitmap = Bitmap.createBitmap(image);
-//        Log.i("BlurView", "onLayoutBlurView bitmap.size=" + inputBitmap.getByteCount());
-
-        // 由于RenderScript并没有使用VM来分配内存,所以需要使用Allocation类来创建和分配内存空间
-        // 创建Allocation对象的时候其实内存是空的,需要使用copyTo()将数据填充进去
-        Allocation tmpIn = Allocation.createFromBitmap(rs, image);
-        Allocation tmpOut = Allocation.createFromBitmap(rs, outputBitmap);
-
-        // 设置渲染的模糊程度, 25f是最大模糊度
-        blurScript.setRadius(blurRadius);
-        // 设置blurScript对象的输入内存
-        blurScript.setInput(tmpIn);
-        // 将输出数据保存到输出内存中
-        blurScript.forEach(tmpOut);
-
-        // 将数据填充到Allocation中
-        tmpOut.copyTo(outputBitmap);
-        image.recycle();
-        rs.destroy();
-
+        BlurEngine engine = blurEngine;
+        if (engine == null) {
+            if (defaultEngine == null) {
+                defaultEngine = BlurEngines.create(getContext());
+            }
+            engine = defaultEngine;
+        }
+        // 部分算法原地模糊，直接返回image
+        Bitmap outputBitmap = engine.blur(image, blurRadius);
+        if (outputBitmap != image) {
+            bitmapPool.put(image);
+        }
         return outputBitmap;
     }
 
-    /**
-     * 打印方法执行时间
-     * @param function
-     */
-    private void printfActionTime(String function) {
-        long time = System.currentTimeMillis();
-        Log.i("ActionTime", function + " time=" + (time - lastActionTime));
-        lastActionTime = time;
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateBackdrop();
     }
 
-    /**
-     * 裁剪View，View转Bitmap，同时进行Bitmap压缩
-     * @param view
-     * @param crop
-     * @param downscaleFactor 压缩比例
-     * @return
-     */
-    private Bitmap getDownscaledBitmapForView(View view, Rect crop, float downscaleFactor) {
-        int width = Math.round(crop.width() * downscaleFactor);
-        int height = Math.round(crop.height() * downscaleFactor);
-
-        if (view.getWidth() <= 0 || view.getHeight() <= 0 || width <= 0 || height <= 0) {
-            throw new IllegalArgumentException("No screen available (width or height = 0)");
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (backdrop != null) {
+            backdrop.leave(this);
+            backdrop = null;
+        }
+        // 释放GPU等资源，重新显示时再创建
+        if (defaultEngine != null) {
+            defaultEngine.release();
         }
-
-        float dx = -crop.left * downscaleFactor;
-        float dy = -crop.top * downscaleFactor;
-
-        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(bitmap);
-        Matrix matrix = new Matrix();
-        matrix.preScale(downscaleFactor, downscaleFactor);
-        matrix.postTranslate(dx, dy);
-        canvas.setMatrix(matrix);
-        view.draw(canvas);
-
-        return bitmap;
     }
 }
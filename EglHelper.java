@@ -0,0 +1,109 @@
+package com.test;
+
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLSurface;
+
+/**
+ * EGL环境，创建OpenGL ES 2.0上下文和绘制目标
+ * 所有方法都要在同一个线程中调用
+ */
+class EglHelper {
+    private EGLDisplay display = EGL14.EGL_NO_DISPLAY;
+    private EGLContext context = EGL14.EGL_NO_CONTEXT;
+    private EGLConfig config;
+    private EGLSurface surface = EGL14.EGL_NO_SURFACE;
+
+    /**
+     * 创建上下文
+     */
+    void create() {
+        display = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        int[] version = new int[2];
+        if (!EGL14.eglInitialize(display, version, 0, version, 1)) {
+            throw new IllegalStateException("eglInitialize failed: " + EGL14.eglGetError());
+        }
+        int[] attributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_ALPHA_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT | EGL14.EGL_PBUFFER_BIT,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] count = new int[1];
+        if (!EGL14.eglChooseConfig(display, attributes, 0, configs, 0, 1, count, 0) || count[0] == 0) {
+            throw new IllegalStateException("eglChooseConfig failed: " + EGL14.eglGetError());
+        }
+        config = configs[0];
+        int[] contextAttributes = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE};
+        context = EGL14.eglCreateContext(display, config, EGL14.EGL_NO_CONTEXT, contextAttributes, 0);
+        if (context == EGL14.EGL_NO_CONTEXT) {
+            throw new IllegalStateException("eglCreateContext failed: " + EGL14.eglGetError());
+        }
+    }
+
+    /**
+     * 绘制到TextureView的SurfaceTexture上
+     */
+    void createWindowSurface(SurfaceTexture surfaceTexture) {
+        releaseSurface();
+        surface = EGL14.eglCreateWindowSurface(display, config, surfaceTexture, new int[]{EGL14.EGL_NONE}, 0);
+        checkSurface();
+    }
+
+    /**
+     * 离屏绘制，只需要读回FBO内容时使用
+     */
+    void createPbufferSurface(int width, int height) {
+        releaseSurface();
+        int[] attributes = {EGL14.EGL_WIDTH, width, EGL14.EGL_HEIGHT, height, EGL14.EGL_NONE};
+        surface = EGL14.eglCreatePbufferSurface(display, config, attributes, 0);
+        checkSurface();
+    }
+
+    void makeCurrent() {
+        if (!EGL14.eglMakeCurrent(display, surface, surface, context)) {
+            throw new IllegalStateException("eglMakeCurrent failed: " + EGL14.eglGetError());
+        }
+    }
+
+    /**
+     * 提交绘制结果，返回false表示Surface已失效
+     */
+    boolean swapBuffers() {
+        return EGL14.eglSwapBuffers(display, surface);
+    }
+
+    void releaseSurface() {
+        if (surface != EGL14.EGL_NO_SURFACE) {
+            EGL14.eglMakeCurrent(display, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+            EGL14.eglDestroySurface(display, surface);
+            surface = EGL14.EGL_NO_SURFACE;
+        }
+    }
+
+    void release() {
+        releaseSurface();
+        if (context != EGL14.EGL_NO_CONTEXT) {
+            EGL14.eglDestroyContext(display, context);
+            context = EGL14.EGL_NO_CONTEXT;
+        }
+        if (display != EGL14.EGL_NO_DISPLAY) {
+            EGL14.eglReleaseThread();
+            EGL14.eglTerminate(display);
+            display = EGL14.EGL_NO_DISPLAY;
+        }
+    }
+
+    private void checkSurface() {
+        if (surface == null || surface == EGL14.EGL_NO_SURFACE) {
+            throw new IllegalStateException("eglCreateSurface failed: " + EGL14.eglGetError());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+import android.content.Context;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * StrokeTextView / StrokeWrapTextViewWrap 共用的字体加载
+ * assets中的字体在后台线程加载，同一个字体同时只加载一次，加载完成后在主线程回调；
+ * 已加载的字体按最近使用保留 maxSize 个。
+ *
+ *  // Application.onCreate() 中预加载常用字体
+ *  FontLoader.warmUp(this, "fonts/SourceHanSansCN-Bold.otf");
+ *
+ *  FontLoader.load(context, "fonts/xxx.otf", (path, typeface) -> textView.setTypeface(typeface));
+ */
+public final class FontLoader {
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    public interface Callback {
+        /**
+         * 在主线程调用
+         * @param typeface 加载失败时为null
+         */
+        void onFontLoaded(String assetPath, Typeface typeface);
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "FontLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static final Object LOCK = new Object();
+    // 按访问顺序排列，最久未使用的在最前面
+    private static final LinkedHashMap<String, Typeface> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    // 正在加载的字体及等待的回调
+    private static final Map<String, List<Callback>> PENDING = new HashMap<>();
+    private static int sMaxSize = DEFAULT_MAX_SIZE;
+
+    private FontLoader() {
+    }
+
+    /**
+     * 已加载的字体，没有时返回null，不会触发加载
+     */
+    public static Typeface getCached(String assetPath) {
+        synchronized (LOCK) {
+            return CACHE.get(assetPath);
+        }
+    }
+
+    /**
+     * 加载字体，已加载时直接回调，否则加载完成后在主线程回调
+     * 回调在加载完成前被强引用，持有视图的回调需要在不再使用时 cancel()
+     * @param callback 可以为null（只加载），同一个回调重复加载同一字体只回调一次
+     */
+    public static void load(Context context, final String assetPath, Callback callback) {
+        Typeface cached;
+        synchronized (LOCK) {
+            cached = CACHE.get(assetPath);
+            if (cached == null) {
+                List<Callback> callbacks = PENDING.get(assetPath);
+                if (callbacks != null) {
+                    // 正在加载，等待同一次结果
+                    if (callback != null && !callbacks.contains(callback)) {
+                        callbacks.add(callback);
+                    }
+                    return;
+                }
+                callbacks = new ArrayList<>(1);
+                if (callback != null) {
+                    callbacks.add(callback);
+                }
+                PENDING.put(assetPath, callbacks);
+            }
+        }
+        if (cached != null) {
+            if (callback != null) {
+                callback.onFontLoaded(assetPath, cached);
+            }
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        EXECUTOR.execute(() -> {
+            Typeface typeface = null;
+            try {
+                typeface = Typeface.createFromAsset(appContext.getAssets(), assetPath);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            final Typeface result = typeface;
+            final List<Callback> callbacks;
+            synchronized (LOCK) {
+                callbacks = PENDING.remove(assetPath);
+                if (result != null) {
+                    CACHE.put(assetPath, result);
+                    trimToSize(sMaxSize);
+                }
+            }
+            if (callbacks != null && !callbacks.isEmpty()) {
+                MAIN_HANDLER.post(() -> {
+                    for (Callback item : callbacks) {
+                        item.onFontLoaded(assetPath, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 预加载字体，一般在Application启动时调用
+     */
+    public static void warmUp(Context context, String... assetPaths) {
+        for (String assetPath : assetPaths) {
+            load(context, assetPath, null);
+        }
+    }
+
+    /**
+     * 取消等待中的回调（字体仍会继续加载），视图离开窗口时调用，避免加载期间一直被持有
+     */
+    public static void cancel(String assetPath, Callback callback) {
+        synchronized (LOCK) {
+            List<Callback> callbacks = PENDING.get(assetPath);
+            if (callbacks != null) {
+                callbacks.remove(callback);
+            }
+        }
+    }
+
+    public static void setMaxSize(int maxSize) {
+        synchronized (LOCK) {
+            sMaxSize = maxSize;
+            trimToSize(maxSize);
+        }
+    }
+
+    private static void trimToSize(int maxSize) {
+        Iterator<String> iterator = CACHE.keySet().iterator();
+        while (CACHE.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.test;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * OpenGL ES 2.0 模糊渲染
+ * 截图上传为纹理后，用可分离高斯模糊着色器在两个FBO之间交替做水平、垂直模糊，
+ * 最后一遍把结果画到屏幕上，同时处理圆角裁剪、遮罩颜色和透明度。
+ * sigma与 ReferenceBlurEngine 一致，GLBlurVerifier 用它校验结果。
+ * 所有方法都要在持有EGL上下文的线程中调用。
+ */
+class GLBlurRenderer {
+    // 每个方向最多采样次数（利用双线性插值每次覆盖两个像素）
+    private static final int MAX_TAPS = 16;
+    // 单遍模糊最多覆盖的像素半径，超过时拆成多遍
+    private static final int MAX_KERNEL_RADIUS = MAX_TAPS * 2 - 2;
+
+    private static final String VERTEX_SHADER =
+            "attribute vec2 aPosition;\n" +
+            "attribute vec2 aTexCoord;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    gl_Position = vec4(aPosition, 0.0, 1.0);\n" +
+            "    vTexCoord = aTexCoord;\n" +
+            "}\n";
+
+    private static final String PRECISION =
+            "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+            "precision highp float;\n" +
+            "#else\n" +
+            "precision mediump float;\n" +
+            "#endif\n";
+
+    // 一个方向的高斯模糊，uWeights[0]是中心权重，其余每个采样点左右对称
+    private static final String BLUR_SHADER = PRECISION +
+            "uniform sampler2D uTexture;\n" +
+            "uniform vec2 uStep;\n" +
+            "uniform float uWeights[" + MAX_TAPS + "];\n" +
+            "uniform float uOffsets[" + MAX_TAPS + "];\n" +
+            "uniform int uCount;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    vec4 color = texture2D(uTexture, vTexCoord) * uWeights[0];\n" +
+            "    for (int i = 1; i < " + MAX_TAPS + "; i++) {\n" +
+            "        if (i >= uCount) {\n" +
+            "            break;\n" +
+            "        }\n" +
+            "        vec2 offset = uStep * uOffsets[i];\n" +
+            "        color += (texture2D(uTexture, vTexCoord + offset) + texture2D(uTexture, vTexCoord - offset)) * uWeights[i];\n" +
+            "    }\n" +
+            "    gl_FragColor = color;\n" +
+            "}\n";
+
+    // 叠加遮罩颜色（预乘alpha），按圆角矩形的距离场裁剪并抗锯齿
+    private static final String COMPOSITE_SHADER = PRECISION +
+            "uniform sampler2D uTexture;\n" +
+            "uniform vec2 uSize;\n" +
+            "uniform float uCornerRadius;\n" +
+            "uniform vec4 uMaskColor;\n" +
+            "uniform float uAlpha;\n" +
+            "varying vec2 vTexCoord;\n" +
+            "void main() {\n" +
+            "    vec4 color = uMaskColor + texture2D(uTexture, vTexCoord) * uAlpha * (1.0 - uMaskColor.a);\n" +
+            "    vec2 halfSize = uSize * 0.5;\n" +
+            "    vec2 q = abs(vTexCoord * uSize - halfSize) - (halfSize - vec2(uCornerRadius));\n" +
+            "    float d = length(max(q, 0.0)) + min(max(q.x, q.y), 0.0) - uCornerRadius;\n" +
+            "    gl_FragColor = color * clamp(0.5 - d, 0.0, 1.0);\n" +
+            "}\n";
+
+    private static final float[] POSITIONS = {-1, -1, 1, -1, -1, 1, 1, 1};
+    // 纹理第0行对应FBO的y=0，FBO之间直接对应
+    private static final float[] TEX_COORDS = {0, 0, 1, 0, 0, 1, 1, 1};
+    // 画到屏幕时上下翻转
+    private static final float[] TEX_COORDS_FLIPPED = {0, 1, 1, 1, 0, 0, 1, 0};
+
+    private final FloatBuffer positions = floatBuffer(POSITIONS);
+    private final FloatBuffer texCoords = floatBuffer(TEX_COORDS);
+    private final FloatBuffer texCoordsFlipped = floatBuffer(TEX_COORDS_FLIPPED);
+    private final float[] weights = new float[MAX_TAPS];
+    private final float[] offsets = new float[MAX_TAPS];
+
+    private int blurProgram;
+    private int compositeProgram;
+    // 0:截图 1、2:交替模糊
+    private final int[] textures = new int[3];
+    private final int[] framebuffers = new int[2];
+    private int width;
+    private int height;
+    private int resultTexture;
+    private int resultFramebuffer;
+
+    void init() {
+        blurProgram = createProgram(VERTEX_SHADER, BLUR_SHADER);
+        compositeProgram = createProgram(VERTEX_SHADER, COMPOSITE_SHADER);
+        GLES20.glGenTextures(textures.length, textures, 0);
+        GLES20.glGenFramebuffers(framebuffers.length, framebuffers, 0);
+        for (int texture : textures) {
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+            GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        }
+        width = 0;
+        height = 0;
+    }
+
+    /**
+     * 上传截图，尺寸不变时复用纹理和FBO
+     */
+    void upload(Bitmap bitmap) {
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[0]);
+        if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+            GLUtils.texSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, bitmap);
+        } else {
+            width = bitmap.getWidth();
+            height = bitmap.getHeight();
+            GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, bitmap, 0);
+            for (int i = 0; i < framebuffers.length; i++) {
+                GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[i + 1]);
+                GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                        GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+                GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffers[i]);
+                GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                        GLES20.GL_TEXTURE_2D, textures[i + 1], 0);
+                if (GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER) != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+                    throw new IllegalStateException("framebuffer incomplete");
+                }
+            }
+            GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        }
+        resultTexture = textures[0];
+        resultFramebuffer = 0;
+    }
+
+    /**
+     * 模糊上传的截图，半径很大时拆成多遍（n遍sigma/√n等价于一遍sigma）
+     */
+    void blur(float radius) {
+        if (radius <= 0 || width == 0) {
+            return;
+        }
+        double sigma = radius * 0.57735 + 0.5;
+        int passes = 1;
+        while (Math.ceil(sigma / Math.sqrt(passes) * 3) > MAX_KERNEL_RADIUS) {
+            passes++;
+        }
+        int count = computeKernel(sigma / Math.sqrt(passes));
+
+        GLES20.glUseProgram(blurProgram);
+        GLES20.glDisable(GLES20.GL_BLEND);
+        GLES20.glViewport(0, 0, width, height);
+        bindAttributes(blurProgram, texCoords);
+        GLES20.glUniform1fv(GLES20.glGetUniformLocation(blurProgram, "uWeights"), MAX_TAPS, weights, 0);
+        GLES20.glUniform1fv(GLES20.glGetUniformLocation(blurProgram, "uOffsets"), MAX_TAPS, offsets, 0);
+        GLES20.glUniform1i(GLES20.glGetUniformLocation(blurProgram, "uCount"), count);
+        int stepLocation = GLES20.glGetUniformLocation(blurProgram, "uStep");
+
+        int source = textures[0];
+        for (int i = 0; i < passes; i++) {
+            // 水平：source -> 1，垂直：1 -> 2
+            GLES20.glUniform2f(stepLocation, 1f / width, 0);
+            drawPass(source, framebuffers[0]);
+            GLES20.glUniform2f(stepLocation, 0, 1f / height);
+            drawPass(textures[1], framebuffers[1]);
+            source = textures[2];
+        }
+        resultTexture = textures[2];
+        resultFramebuffer = framebuffers[1];
+    }
+
+    /**
+     * 把模糊结果画到当前Surface上
+     * @param maskColor 遮罩颜色（ARGB）
+     * @param alpha     模糊图片的透明度 0~1，不影响遮罩
+     */
+    void drawComposite(int viewWidth, int viewHeight, float cornerRadius, int maskColor, float alpha) {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        GLES20.glViewport(0, 0, viewWidth, viewHeight);
+        GLES20.glClearColor(0, 0, 0, 0);
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        if (width == 0) {
+            return;
+        }
+        GLES20.glUseProgram(compositeProgram);
+        bindAttributes(compositeProgram, texCoordsFlipped);
+        float maskAlpha = Color.alpha(maskColor) / 255f;
+        GLES20.glUniform4f(GLES20.glGetUniformLocation(compositeProgram, "uMaskColor"),
+                Color.red(maskColor) / 255f * maskAlpha, Color.green(maskColor) / 255f * maskAlpha,
+                Color.blue(maskColor) / 255f * maskAlpha, maskAlpha);
+        GLES20.glUniform2f(GLES20.glGetUniformLocation(compositeProgram, "uSize"), viewWidth, viewHeight);
+        GLES20.glUniform1f(GLES20.glGetUniformLocation(compositeProgram, "uCornerRadius"), cornerRadius);
+        GLES20.glUniform1f(GLES20.glGetUniformLocation(compositeProgram, "uAlpha"), alpha);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, resultTexture);
+        GLES20.glUniform1i(GLES20.glGetUniformLocation(compositeProgram, "uTexture"), 0);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+    }
+
+    /**
+     * 读回模糊结果（非预乘的ARGB，行顺序与上传的Bitmap相同），必须先调用过blur
+     */
+    void readPixels(int[] out) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder());
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, resultFramebuffer);
+        GLES20.glReadPixels(0, 0, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, buffer);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+        for (int i = 0; i < width * height; i++) {
+            int r = buffer.get() & 0xFF;
+            int g = buffer.get() & 0xFF;
+            int b = buffer.get() & 0xFF;
+            int a = buffer.get() & 0xFF;
+            if (a > 0 && a < 255) {
+                r = Math.min(255, r * 255 / a);
+                g = Math.min(255, g * 255 / a);
+                b = Math.min(255, b * 255 / a);
+            }
+            out[i] = a << 24 | r << 16 | g << 8 | b;
+        }
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    void release() {
+        GLES20.glDeleteFramebuffers(framebuffers.length, framebuffers, 0);
+        GLES20.glDeleteTextures(textures.length, textures, 0);
+        GLES20.glDeleteProgram(blurProgram);
+        GLES20.glDeleteProgram(compositeProgram);
+        width = 0;
+        height = 0;
+    }
+
+    /**
+     * 计算一维高斯核，相邻两个像素合并成一次双线性采样
+     * @return 采样次数（含中心）
+     */
+    private int computeKernel(double sigma) {
+        int radius = (int) Math.ceil(sigma * 3);
+        double[] gauss = new double[radius + 2];
+        double sum = 0;
+        for (int i = 0; i <= radius; i++) {
+            gauss[i] = Math.exp(-(i * i) / (2 * sigma * sigma));
+            sum += i == 0 ? gauss[i] : gauss[i] * 2;
+        }
+        weights[0] = (float) (gauss[0] / sum);
+        offsets[0] = 0;
+        int count = 1;
+        for (int i = 1; i <= radius; i += 2) {
+            double weight = gauss[i] + gauss[i + 1];
+            weights[count] = (float) (weight / sum);
+            offsets[count] = (float) ((i * gauss[i] + (i + 1) * gauss[i + 1]) / weight);
+            count++;
+        }
+        return count;
+    }
+
+    private void drawPass(int sourceTexture, int framebuffer) {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, framebuffer);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, sourceTexture);
+        GLES20.glUniform1i(GLES20.glGetUniformLocation(blurProgram, "uTexture"), 0);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+    }
+
+    private void bindAttributes(int program, FloatBuffer coords) {
+        int position = GLES20.glGetAttribLocation(program, "aPosition");
+        GLES20.glEnableVertexAttribArray(position);
+        GLES20.glVertexAttribPointer(position, 2, GLES20.GL_FLOAT, false, 0, positions);
+        int texCoord = GLES20.glGetAttribLocation(program, "aTexCoord");
+        GLES20.glEnableVertexAttribArray(texCoord);
+        GLES20.glVertexAttribPointer(texCoord, 2, GLES20.GL_FLOAT, false, 0, coords);
+    }
+
+    private static int createProgram(String vertexSource, String fragmentSource) {
+        int vertexShader = compileShader(GLES20.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentSource);
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new IllegalStateException("link program failed: " + log);
+        }
+        return program;
+    }
+
+    private static int compileShader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new IllegalStateException("compile shader failed: " + log);
+        }
+        return shader;
+    }
+
+    private static FloatBuffer floatBuffer(float[] data) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(data.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        buffer.put(data).position(0);
+        return buffer;
+    }
+}
@@ -0,0 +1,81 @@
+package com.test;
+
+import android.graphics.Bitmap;
+
+/**
+ * 校验GPU模糊结果
+ * 在离屏EGL上下文中用 GLBlurRenderer 模糊，与 ReferenceBlurEngine 的精确高斯模糊逐像素对比，
+ * 用于在真机上确认着色器的模糊程度和精度。
+ * 纹理按预乘alpha处理，请使用不透明的图片对比。
+ * 不能在已经有EGL上下文的线程（如GL线程）中调用。
+ *
+ *  GLBlurVerifier.Result result = GLBlurVerifier.verify(bitmap, 10);
+ *  Log.i("GLBlur", result + " passed=" + result.passed(3));
+ */
+public final class GLBlurVerifier {
+
+    public static final class Result {
+        // 单个通道的最大差值
+        public final int maxDiff;
+        // 所有通道的平均差值
+        public final double meanDiff;
+
+        Result(int maxDiff, double meanDiff) {
+            this.maxDiff = maxDiff;
+            this.meanDiff = meanDiff;
+        }
+
+        /**
+         * @param tolerance 允许的平均差值
+         */
+        public boolean passed(double tolerance) {
+            return meanDiff <= tolerance;
+        }
+
+        @Override
+        public String toString() {
+            return "maxDiff=" + maxDiff + " meanDiff=" + meanDiff;
+        }
+    }
+
+    private GLBlurVerifier() {
+    }
+
+    public static Result verify(Bitmap input, float radius) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int[] expected = new int[width * height];
+        input.getPixels(expected, 0, width, 0, 0, width, height);
+        ReferenceBlurEngine.blur(expected, width, height, radius);
+
+        int[] actual = new int[width * height];
+        EglHelper egl = new EglHelper();
+        GLBlurRenderer renderer = new GLBlurRenderer();
+        try {
+            egl.create();
+            egl.createPbufferSurface(1, 1);
+            egl.makeCurrent();
+            renderer.init();
+            try {
+                renderer.upload(input);
+                renderer.blur(radius);
+                renderer.readPixels(actual);
+            } finally {
+                renderer.release();
+            }
+        } finally {
+            egl.release();
+        }
+
+        int maxDiff = 0;
+        long sum = 0;
+        for (int i = 0; i < actual.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int diff = Math.abs(((actual[i] >>> shift) & 0xFF) - ((expected[i] >>> shift) & 0xFF));
+                maxDiff = Math.max(maxDiff, diff);
+                sum += diff;
+            }
+        }
+        return new Result(maxDiff, (double) sum / (actual.length * 4));
+    }
+}
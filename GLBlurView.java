@@ -0,0 +1,370 @@
+package com.test;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Trace;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.TextureView;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+
+/**
+ *  GPU毛玻璃视图
+ *  和 BlurView 使用相同的属性，截图仍在主线程录制，光栅化后作为纹理上传，
+ *  缩放、高斯模糊、圆角裁剪和遮罩都由OpenGL ES着色器在独立的GL线程完成，结果直接输出到TextureView，
+ *  主线程不再处理模糊后的Bitmap。
+ *
+ *  <com.test.GLBlurView
+ *      android:layout_width="300dp"
+ *      android:layout_height="100dp"
+ *      app:downScale="0.2"
+ *      app:blurRadius="10" />
+ *
+ *  修改遮罩颜色、圆角、透明度只重新合成，不重新模糊。
+ *  TextureView在截图用的软件Canvas上不绘制，截图中自然不包含自己。
+ *  模糊结果可以用 GLBlurVerifier 与 ReferenceBlurEngine 对比校验。
+ */
+public class GLBlurView extends TextureView implements TextureView.SurfaceTextureListener {
+    private static final String TAG = "GLBlurView";
+
+    //缩减比例,太小会失真
+    private float downScaleFactor = 0.8f;
+    //视图圆角处理
+    private float mRadius = 0;
+    //最后绘制一个蒙板盖上面
+    private int maskColor = 0;
+    //模糊程度
+    private float mBlurRadius = 0;
+    // 实时模糊
+    private boolean liveBlur = false;
+    private int alpha = 255;
+    private BitmapPool bitmapPool = BitmapPool.getDefault();
+    // 各阶段耗时统计，draw为GL线程合成并提交的耗时
+    private BlurMetrics metrics = new BlurFrameStats();
+
+    private final ViewTreeObserver.OnPreDrawListener preDrawListener = () -> {
+        onPreDraw();
+        return true;
+    };
+    private ViewTreeObserver observer;
+    private final Rect captureRect = new Rect();
+    private boolean captureRequested = false;
+    private boolean inFlight = false;
+    private boolean pending = false;
+
+    // GL线程，Surface可用时创建，销毁时退出
+    private HandlerThread glThread;
+    private Handler glHandler;
+    private int surfaceWidth;
+    private int surfaceHeight;
+    // 以下只在GL线程中使用
+    private final EglHelper egl = new EglHelper();
+    private final GLBlurRenderer renderer = new GLBlurRenderer();
+    private final Canvas glCanvas = new Canvas();
+    private boolean glReady = false;
+
+    public GLBlurView(Context context) {
+        super(context);
+        init();
+    }
+
+    public GLBlurView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init();
+        getAttr(context, attrs);
+    }
+
+    public GLBlurView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        init();
+        getAttr(context, attrs);
+    }
+
+    private void init() {
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    private void getAttr(Context context, AttributeSet attrs) {
+        TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.BlurView);
+        downScaleFactor = typedArray.getFloat(R.styleable.BlurView_downScale, 0.8f);
+        mRadius = typedArray.getDimensionPixelSize(R.styleable.BlurView_circleRadius, 0);
+        maskColor = typedArray.getColor(R.styleable.BlurView_maskColor, 0);
+        mBlurRadius = typedArray.getFloat(R.styleable.BlurView_blurRadius, 0);
+        liveBlur = typedArray.getBoolean(R.styleable.BlurView_liveBlur, false);
+        typedArray.recycle();
+    }
+
+    /**
+     * 设置遮罩颜色
+     * @param color
+     */
+    public void setMaskColor(int color) {
+        this.maskColor = color;
+        postComposite();
+    }
+
+    /**
+     * 设置模糊程度
+     * @param radius
+     */
+    public void setBlurRadius(int radius) {
+        if (this.mBlurRadius == radius) {
+            return;
+        }
+        this.mBlurRadius = radius;
+        requestCapture();
+    }
+
+    /**
+     * 设置圆角
+     * @param radius
+     */
+    public void setCornerRadius(float radius) {
+        this.mRadius = radius;
+        postComposite();
+    }
+
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+        postComposite();
+    }
+
+    /**
+     * 实时模糊，下层内容变化时自动更新
+     * @param live
+     */
+    public void setLiveBlur(boolean live) {
+        this.liveBlur = live;
+        requestCapture();
+    }
+
+    /**
+     * 指定Bitmap池，默认使用 BitmapPool.getDefault()
+     * @param pool
+     */
+    public void setBitmapPool(BitmapPool pool) {
+        this.bitmapPool = pool;
+    }
+
+    /**
+     * 指定耗时统计，默认每个视图一个 BlurFrameStats
+     * @param metrics 为null时不统计
+     */
+    public void setMetrics(BlurMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public BlurMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void requestCapture() {
+        captureRequested = true;
+        invalidate();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        captureRequested = true;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (getParent() instanceof ViewGroup) {
+            observer = ((ViewGroup) getParent()).getViewTreeObserver();
+            observer.addOnPreDrawListener(preDrawListener);
+        }
+        captureRequested = true;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        if (observer != null && observer.isAlive()) {
+            observer.removeOnPreDrawListener(preDrawListener);
+        }
+        observer = null;
+        super.onDetachedFromWindow();
+    }
+
+    private void onPreDraw() {
+        if ((!captureRequested && !liveBlur) || glHandler == null) {
+            return;
+        }
+        if (inFlight) {
+            // 上一帧还没处理完，处理完后再截
+            pending = true;
+            return;
+        }
+        ViewGroup parent = getParent() instanceof ViewGroup ? (ViewGroup) getParent() : null;
+        final int width = Math.round(getWidth() * downScaleFactor);
+        final int height = Math.round(getHeight() * downScaleFactor);
+        if (parent == null || width <= 0 || height <= 0) {
+            return;
+        }
+        captureRequested = false;
+        captureRect.set(getLeft(), getTop(), getRight(), getBottom());
+        long start = System.nanoTime();
+        Trace.beginSection("BlurView:capture");
+        final Picture picture = BlurBackdrop.recordDownscaledPicture(parent, captureRect, downScaleFactor, width, height);
+        Trace.endSection();
+        final long recordNanos = System.nanoTime() - start;
+        final float radius = mBlurRadius;
+        final BitmapPool pool = bitmapPool;
+        final int viewWidth = surfaceWidth;
+        final int viewHeight = surfaceHeight;
+        final float corner = mRadius;
+        final int mask = maskColor;
+        final float imageAlpha = alpha / 255f;
+        inFlight = true;
+        glHandler.post(() -> {
+            final long[] stageNanos = glReady ? new long[BlurMetrics.STAGE_COUNT] : null;
+            if (stageNanos != null) {
+                stageNanos[BlurMetrics.STAGE_CAPTURE] = recordNanos;
+                long time = System.nanoTime();
+                Trace.beginSection("BlurView:downscale");
+                Bitmap captured = pool.get(width, height, Bitmap.Config.ARGB_8888);
+                glCanvas.setBitmap(captured);
+                picture.draw(glCanvas);
+                glCanvas.setBitmap(null);
+                Trace.endSection();
+                time = lap(stageNanos, BlurMetrics.STAGE_DOWNSCALE, time);
+                Trace.beginSection("BlurView:upload");
+                renderer.upload(captured);
+                pool.put(captured);
+                Trace.endSection();
+                time = lap(stageNanos, BlurMetrics.STAGE_UPLOAD, time);
+                Trace.beginSection("BlurView:blur");
+                renderer.blur(radius);
+                Trace.endSection();
+                time = lap(stageNanos, BlurMetrics.STAGE_BLUR, time);
+                Trace.beginSection("BlurView:draw");
+                composite(viewWidth, viewHeight, corner, mask, imageAlpha);
+                Trace.endSection();
+                lap(stageNanos, BlurMetrics.STAGE_DRAW, time);
+            }
+            post(() -> onFrameFinished(stageNanos));
+        });
+    }
+
+    // 记录从start到现在的耗时，返回现在的时间
+    private static long lap(long[] stageNanos, int stage, long start) {
+        long now = System.nanoTime();
+        stageNanos[stage] = now - start;
+        return now;
+    }
+
+    /**
+     * GL线程处理完一帧，在主线程调用
+     * @param stageNanos 各阶段耗时，GL未就绪时为null
+     */
+    private void onFrameFinished(long[] stageNanos) {
+        inFlight = false;
+        if (stageNanos != null && metrics != null) {
+            for (int stage = 0; stage < BlurMetrics.STAGE_COUNT; stage++) {
+                metrics.onStage(stage, stageNanos[stage]);
+            }
+        }
+        if (pending) {
+            // 处理期间内容可能又变了，下一帧再截一次
+            pending = false;
+            requestCapture();
+        }
+    }
+
+    /**
+     * 用上一次的模糊结果按当前的遮罩、圆角、透明度重新合成
+     */
+    private void postComposite() {
+        if (glHandler == null) {
+            return;
+        }
+        final int viewWidth = surfaceWidth;
+        final int viewHeight = surfaceHeight;
+        final float corner = mRadius;
+        final int mask = maskColor;
+        final float imageAlpha = alpha / 255f;
+        glHandler.post(() -> {
+            if (glReady) {
+                composite(viewWidth, viewHeight, corner, mask, imageAlpha);
+            }
+        });
+    }
+
+    // GL线程
+    private void composite(int viewWidth, int viewHeight, float corner, int mask, float imageAlpha) {
+        renderer.drawComposite(viewWidth, viewHeight, corner, mask, imageAlpha);
+        if (!egl.swapBuffers()) {
+            Log.w(TAG, "swapBuffers failed, surface lost");
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+        surfaceWidth = width;
+        surfaceHeight = height;
+        glThread = new HandlerThread("GLBlurView");
+        glThread.start();
+        glHandler = new Handler(glThread.getLooper());
+        glHandler.post(() -> {
+            try {
+                egl.create();
+                egl.createWindowSurface(surface);
+                egl.makeCurrent();
+                renderer.init();
+                glReady = true;
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "init GL failed", e);
+                egl.release();
+            }
+        });
+        requestCapture();
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
+        surfaceWidth = width;
+        surfaceHeight = height;
+        requestCapture();
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        if (glThread != null) {
+            glHandler.post(() -> {
+                if (glReady) {
+                    renderer.release();
+                    glReady = false;
+                }
+                egl.release();
+            });
+            glThread.quitSafely();
+            // 等GL线程释放完再让TextureView释放SurfaceTexture
+            try {
+                glThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            glThread = null;
+            glHandler = null;
+        }
+        inFlight = false;
+        pending = false;
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
+    }
+}
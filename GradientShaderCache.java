@@ -0,0 +1,76 @@
+import android.graphics.LinearGradient;
+import android.graphics.Shader;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * StrokeTextView / StrokeWrapTextViewWrap 共用的渐变Shader缓存
+ * 以颜色、方向和渐变长度（横向为宽度，纵向为高度）为key，LRU保留 MAX_SIZE 个，
+ * 列表中颜色和尺寸相同的文字共用同一个 LinearGradient。
+ */
+public final class GradientShaderCache {
+    public static final int HORIZONTAL = 0;
+    public static final int VERTICAL = 1;
+    private static final int MAX_SIZE = 64;
+
+    // 按访问顺序排列，最久未使用的在最前面
+    private static final LinkedHashMap<Key, LinearGradient> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class Key {
+        final int[] colors;
+        final int orientation;
+        final int length;
+        final int hashCode;
+
+        Key(int[] colors, int orientation, int length) {
+            this.colors = colors;
+            this.orientation = orientation;
+            this.length = length;
+            this.hashCode = (Arrays.hashCode(colors) * 31 + orientation) * 31 + length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode && orientation == key.orientation && length == key.length
+                    && Arrays.equals(colors, key.colors);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private GradientShaderCache() {
+    }
+
+    /**
+     * @param length 渐变长度，横向为宽度，纵向为高度
+     * @return 颜色少于2个或长度不大于0时返回null
+     */
+    public static LinearGradient get(int[] colors, int orientation, int length) {
+        if (colors == null || colors.length < 2 || length <= 0) return null;
+        Key key = new Key(colors, orientation, length);
+        synchronized (CACHE) {
+            LinearGradient gradient = CACHE.get(key);
+            if (gradient == null) {
+                gradient = orientation == HORIZONTAL
+                        ? new LinearGradient(0, 0, length, 0, colors, null, Shader.TileMode.CLAMP)
+                        : new LinearGradient(0, 0, 0, length, colors, null, Shader.TileMode.CLAMP);
+                // 复制颜色，调用方之后修改数组不影响key
+                CACHE.put(new Key(colors.clone(), orientation, length), gradient);
+                Iterator<Key> iterator = CACHE.keySet().iterator();
+                while (CACHE.size() > MAX_SIZE && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+            return gradient;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.test;
+
+import android.graphics.Bitmap;
+
+/**
+ * 增量模糊，实时模糊模式使用
+ * 每次截图按行分段计算哈希，和上一次比较：没有变化直接跳过；
+ * 只有部分行变化时，只重新模糊变化的行（上下各加两倍半径的边距），结果合并到上一次的模糊结果中。
+ * 只能在单个后台线程中使用。
+ */
+class IncrementalBlur {
+    // 每段的行数
+    private static final int BAND_HEIGHT = 8;
+    // 变化区域超过这个比例时直接整张模糊
+    private static final float MAX_PARTIAL_RATIO = 0.6f;
+
+    private int width;
+    private int height;
+    private float radius;
+    private int[] hashes;
+    private int[] newHashes;
+    private int[] capturedPixels;
+    // 上一次的完整模糊结果，只有模糊结果可以读回像素时才有
+    private int[] blurredPixels;
+    private boolean hasBlurred;
+
+    /**
+     * 处理一张新的截图
+     * @param captured 截图，处理后归还到pool或作为结果返回，调用方不能再使用
+     * @return 新的模糊结果，内容没有变化时返回null
+     */
+    Bitmap process(Bitmap captured, float radius, BlurEngine engine, BitmapPool pool) {
+        int w = captured.getWidth();
+        int h = captured.getHeight();
+        int size = w * h;
+        if (capturedPixels == null || capturedPixels.length < size) {
+            capturedPixels = new int[size];
+        }
+        captured.getPixels(capturedPixels, 0, w, 0, 0, w, h);
+
+        int bands = (h + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        if (newHashes == null || newHashes.length != bands) {
+            newHashes = new int[bands];
+        }
+        for (int band = 0; band < bands; band++) {
+            int hash = 1;
+            for (int i = band * BAND_HEIGHT * w, end = Math.min(h, (band + 1) * BAND_HEIGHT) * w; i < end; i++) {
+                hash = 31 * hash + capturedPixels[i];
+            }
+            newHashes[band] = hash;
+        }
+
+        boolean sameShape = w == width && h == height && radius == this.radius && hashes != null
+                && hashes.length == bands;
+        int first = -1;
+        int last = -1;
+        if (sameShape) {
+            for (int band = 0; band < bands; band++) {
+                if (hashes[band] != newHashes[band]) {
+                    if (first < 0) {
+                        first = band;
+                    }
+                    last = band;
+                }
+            }
+            if (first < 0) {
+                pool.put(captured);
+                return null;
+            }
+        }
+        int[] temp = hashes;
+        hashes = newHashes;
+        newHashes = temp;
+
+        // 大半径的多级缩放模糊按行局部模糊会在分段边界产生接缝，只能整张模糊
+        if (sameShape && hasBlurred && radius <= KawaseBlurEngine.SMALL_RADIUS_LIMIT) {
+            int margin = (int) Math.ceil(radius) + 1;
+            int dirtyTop = first * BAND_HEIGHT;
+            int dirtyBottom = Math.min(h, (last + 1) * BAND_HEIGHT);
+            if (dirtyBottom - dirtyTop + margin * 4 < h * MAX_PARTIAL_RATIO) {
+                pool.put(captured);
+                return blurRows(dirtyTop, dirtyBottom, margin, engine, pool);
+            }
+        }
+
+        // 整张模糊
+        width = w;
+        height = h;
+        this.radius = radius;
+        Bitmap result = engine.blur(captured, radius);
+        if (result != captured) {
+            pool.put(captured);
+        }
+        // GPU模糊的结果无法读回，之后每次都整张模糊
+        hasBlurred = isReadable(result);
+        if (hasBlurred) {
+            if (blurredPixels == null || blurredPixels.length < size) {
+                blurredPixels = new int[size];
+            }
+            result.getPixels(blurredPixels, 0, w, 0, 0, w, h);
+        }
+        return result;
+    }
+
+    /**
+     * 清除上一次的状态，下一次整张模糊
+     */
+    void reset() {
+        hashes = null;
+        hasBlurred = false;
+    }
+
+    // 只重新模糊 [dirtyTop, dirtyBottom) 影响到的行
+    private Bitmap blurRows(int dirtyTop, int dirtyBottom, int margin, BlurEngine engine, BitmapPool pool) {
+        int w = width;
+        // 输出的每一行受上下radius行输入影响，需要多取一倍边距保证更新的行计算正确
+        int bandTop = Math.max(0, dirtyTop - margin * 2);
+        int bandBottom = Math.min(height, dirtyBottom + margin * 2);
+        int updateTop = Math.max(0, dirtyTop - margin);
+        int updateBottom = Math.min(height, dirtyBottom + margin);
+
+        Bitmap band = pool.get(w, bandBottom - bandTop, Bitmap.Config.ARGB_8888);
+        band.setPixels(capturedPixels, bandTop * w, w, 0, 0, w, bandBottom - bandTop);
+        Bitmap blurredBand = engine.blur(band, radius);
+        blurredBand.getPixels(blurredPixels, updateTop * w, w, 0, updateTop - bandTop, w, updateBottom - updateTop);
+        if (blurredBand != band) {
+            pool.put(blurredBand);
+        }
+        pool.put(band);
+
+        Bitmap result = pool.get(w, height, Bitmap.Config.ARGB_8888);
+        result.setPixels(blurredPixels, 0, w, 0, 0, w, height);
+        return result;
+    }
+
+    private static boolean isReadable(Bitmap bitmap) {
+        return bitmap.isMutable();
+    }
+}
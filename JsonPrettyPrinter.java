@@ -0,0 +1,428 @@
+package org.kk.lib.logger;
+
+import java.util.Arrays;
+
+/**
+ * 流式JSON格式化输出
+ * 逐个字符扫描并缩进，不构建JSONObject/JSONArray，内存占用只和输出块大小有关；
+ * 输出按块回调，适合直接打印到logcat。默认完整输出，需要时可以指定截断超长的数组和字符串：
+ *
+ *  JsonPrettyPrinter printer = new JsonPrettyPrinter(4, 50, 500, 1000);
+ *  printer.print(response, chunk -> Log.d(TAG, chunk));
+ *
+ *  输入不是合法JSON时不会报错，只按遇到的字符尽量格式化；需要区分时先用 isValid() 判断。
+ */
+public class JsonPrettyPrinter {
+    // 默认缩进空格数
+    public static final int DEFAULT_INDENT = 4;
+    // 默认每块最多字符数，logcat单条上限约4000字节，中文按3字节计算
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    // 不限制
+    public static final int UNLIMITED = -1;
+    private static final String[] LITERALS = {"true", "false", "null"};
+
+    public interface ChunkConsumer {
+        void accept(String chunk);
+    }
+
+    private final int indent;
+    private final int maxArrayItems;
+    private final int maxStringLength;
+    private final int chunkSize;
+
+    /**
+     * 默认缩进和分块，不截断
+     */
+    public JsonPrettyPrinter() {
+        this(DEFAULT_INDENT, UNLIMITED, UNLIMITED, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param indent          缩进空格数
+     * @param maxArrayItems   数组最多输出的元素个数，UNLIMITED不限制
+     * @param maxStringLength 字符串最多输出的字符数，UNLIMITED不限制
+     * @param chunkSize       每块最多字符数，尽量在换行处分块，UNLIMITED不分块
+     */
+    public JsonPrettyPrinter(int indent, int maxArrayItems, int maxStringLength, int chunkSize) {
+        this.indent = Math.max(0, indent);
+        this.maxArrayItems = maxArrayItems;
+        this.maxStringLength = maxStringLength;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 格式化为一个字符串（不分块）
+     */
+    public String format(CharSequence json) {
+        Writer writer = new Writer(UNLIMITED, null);
+        writer.print(json);
+        return writer.out.toString();
+    }
+
+    /**
+     * 格式化并按块回调输出
+     */
+    public void print(CharSequence json, ChunkConsumer consumer) {
+        new Writer(chunkSize, consumer).print(json);
+    }
+
+    /**
+     * 是否为完整合法的JSON（RFC 8259），只扫描一遍，不创建对象
+     */
+    public static boolean isValid(CharSequence json) {
+        final int value = 0, valueOrClose = 1, key = 2, keyOrClose = 3, colon = 4, commaOrClose = 5, end = 6;
+        int length = json.length();
+        // 每层容器是否为对象
+        boolean[] isObject = new boolean[16];
+        int depth = 0;
+        int state = value;
+        int i = 0;
+        while (true) {
+            while (i < length && isWhitespace(json.charAt(i))) {
+                i++;
+            }
+            if (i >= length) {
+                return state == end;
+            }
+            char c = json.charAt(i);
+            if (state == end) {
+                return false;
+            }
+            if ((state == keyOrClose && c == '}') || (state == valueOrClose && c == ']')
+                    || (state == commaOrClose && c == (isObject[depth - 1] ? '}' : ']'))) {
+                depth--;
+                i++;
+                state = depth == 0 ? end : commaOrClose;
+            } else if (state == commaOrClose) {
+                if (c != ',') {
+                    return false;
+                }
+                i++;
+                state = isObject[depth - 1] ? key : value;
+            } else if (state == key || state == keyOrClose) {
+                if (c != '"' || (i = skipString(json, i)) < 0) {
+                    return false;
+                }
+                state = colon;
+            } else if (state == colon) {
+                if (c != ':') {
+                    return false;
+                }
+                i++;
+                state = value;
+            } else if (c == '{' || c == '[') {
+                if (depth == isObject.length) {
+                    isObject = Arrays.copyOf(isObject, depth * 2);
+                }
+                isObject[depth++] = c == '{';
+                i++;
+                state = c == '{' ? keyOrClose : valueOrClose;
+            } else {
+                i = c == '"' ? skipString(json, i) : skipLiteral(json, i);
+                if (i < 0) {
+                    return false;
+                }
+                state = depth == 0 ? end : commaOrClose;
+            }
+        }
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    // 跳过字符串，返回结束引号之后的位置，不合法时返回-1
+    private static int skipString(CharSequence json, int start) {
+        int length = json.length();
+        int i = start + 1;
+        while (i < length) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c < 0x20) {
+                return -1;
+            }
+            if (c == '\\') {
+                if (i + 1 >= length) {
+                    return -1;
+                }
+                char escaped = json.charAt(i + 1);
+                if (escaped == 'u') {
+                    if (i + 6 > length) {
+                        return -1;
+                    }
+                    for (int k = i + 2; k < i + 6; k++) {
+                        if (Character.digit(json.charAt(k), 16) < 0) {
+                            return -1;
+                        }
+                    }
+                    i += 6;
+                    continue;
+                }
+                if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+                    return -1;
+                }
+                i += 2;
+                continue;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    // 跳过 true/false/null 或数字，返回之后的位置，不合法时返回-1
+    private static int skipLiteral(CharSequence json, int start) {
+        for (String literal : LITERALS) {
+            if (regionMatches(json, start, literal)) {
+                return start + literal.length();
+            }
+        }
+        int length = json.length();
+        int i = start;
+        if (i < length && json.charAt(i) == '-') {
+            i++;
+        }
+        if (i < length && json.charAt(i) == '0') {
+            i++;
+        } else {
+            int digits = skipDigits(json, i);
+            if (digits == i) {
+                return -1;
+            }
+            i = digits;
+        }
+        if (i < length && json.charAt(i) == '.') {
+            int digits = skipDigits(json, i + 1);
+            if (digits == i + 1) {
+                return -1;
+            }
+            i = digits;
+        }
+        if (i < length && (json.charAt(i) == 'e' || json.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (json.charAt(i) == '+' || json.charAt(i) == '-')) {
+                i++;
+            }
+            int digits = skipDigits(json, i);
+            if (digits == i) {
+                return -1;
+            }
+            i = digits;
+        }
+        return i;
+    }
+
+    private static int skipDigits(CharSequence json, int start) {
+        int i = start;
+        while (i < json.length() && json.charAt(i) >= '0' && json.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean regionMatches(CharSequence json, int start, String text) {
+        if (start + text.length() > json.length()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (json.charAt(start + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 单次格式化的状态
+    private final class Writer {
+        private final int chunkSize;
+        private final ChunkConsumer consumer;
+        private final StringBuilder out;
+        private boolean[] isArray = new boolean[16];
+        private int[] itemCount = new int[16];
+        private int depth = 0;
+
+        Writer(int chunkSize, ChunkConsumer consumer) {
+            this.chunkSize = chunkSize;
+            this.consumer = consumer;
+            this.out = new StringBuilder(chunkSize > 0 ? chunkSize + 64 : 1024);
+        }
+
+        void print(CharSequence json) {
+            int length = json.length();
+            for (int i = 0; i < length; i++) {
+                char c = json.charAt(i);
+                switch (c) {
+                    case '"':
+                        i = writeString(json, i);
+                        break;
+                    case '{':
+                    case '[': {
+                        append(c);
+                        int next = skipWhitespace(json, i + 1);
+                        char close = c == '{' ? '}' : ']';
+                        if (next < length && json.charAt(next) == close) {
+                            // 空对象或空数组
+                            append(close);
+                            i = next;
+                        } else {
+                            push(c == '[');
+                            newLine();
+                        }
+                        break;
+                    }
+                    case '}':
+                    case ']':
+                        pop();
+                        newLine();
+                        append(c);
+                        break;
+                    case ',':
+                        append(c);
+                        newLine();
+                        if (depth > 0 && isArray[depth - 1]) {
+                            itemCount[depth - 1]++;
+                            if (maxArrayItems >= 0 && itemCount[depth - 1] > maxArrayItems) {
+                                i = skipArrayItems(json, i + 1);
+                            }
+                        }
+                        break;
+                    case ':':
+                        append(':');
+                        append(' ');
+                        break;
+                    case ' ':
+                    case '\t':
+                    case '\n':
+                    case '\r':
+                        break;
+                    default:
+                        append(c);
+                        break;
+                }
+            }
+            flush(true);
+        }
+
+        // 输出字符串，返回结束引号的位置
+        private int writeString(CharSequence json, int start) {
+            int length = json.length();
+            int count = 0;
+            append('"');
+            int i = start + 1;
+            while (i < length) {
+                char c = json.charAt(i);
+                if (c == '"') {
+                    break;
+                }
+                // 转义字符作为整体处理
+                int end = c == '\\' && i + 1 < length ? i + 2 : i + 1;
+                if (maxStringLength < 0 || count < maxStringLength) {
+                    for (int k = i; k < end; k++) {
+                        append(json.charAt(k));
+                    }
+                }
+                count++;
+                i = end;
+            }
+            if (maxStringLength >= 0 && count > maxStringLength) {
+                appendText("...(" + count + " chars)");
+            }
+            append('"');
+            return i;
+        }
+
+        // 跳过数组中超出限制的元素，返回结束括号前一个位置
+        private int skipArrayItems(CharSequence json, int start) {
+            int length = json.length();
+            int nested = 0;
+            int skipped = 1;
+            int i = start;
+            while (i < length) {
+                char c = json.charAt(i);
+                if (c == '"') {
+                    i++;
+                    while (i < length && json.charAt(i) != '"') {
+                        i += json.charAt(i) == '\\' ? 2 : 1;
+                    }
+                } else if (c == '{' || c == '[') {
+                    nested++;
+                } else if (c == '}' || c == ']') {
+                    if (nested == 0) {
+                        break;
+                    }
+                    nested--;
+                } else if (c == ',' && nested == 0) {
+                    skipped++;
+                }
+                i++;
+            }
+            appendText("\"... " + skipped + " more items\"");
+            return i - 1;
+        }
+
+        private int skipWhitespace(CharSequence json, int start) {
+            int i = start;
+            while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private void push(boolean array) {
+            if (depth == isArray.length) {
+                isArray = Arrays.copyOf(isArray, depth * 2);
+                itemCount = Arrays.copyOf(itemCount, depth * 2);
+            }
+            isArray[depth] = array;
+            itemCount[depth] = 1;
+            depth++;
+        }
+
+        private void pop() {
+            if (depth > 0) {
+                depth--;
+            }
+        }
+
+        private void newLine() {
+            append('\n');
+            for (int i = 0, n = depth * indent; i < n; i++) {
+                out.append(' ');
+            }
+        }
+
+        private void appendText(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                append(text.charAt(i));
+            }
+        }
+
+        private void append(char c) {
+            out.append(c);
+            if (chunkSize > 0 && out.length() >= chunkSize) {
+                flush(false);
+            }
+        }
+
+        private void flush(boolean end) {
+            if (consumer == null || out.length() == 0) {
+                return;
+            }
+            if (end || chunkSize <= 0) {
+                consumer.accept(out.toString());
+                out.setLength(0);
+                return;
+            }
+            // 尽量在换行处分块
+            int lineEnd = out.lastIndexOf("\n");
+            if (lineEnd > 0) {
+                consumer.accept(out.substring(0, lineEnd));
+                out.delete(0, lineEnd + 1);
+            } else {
+                consumer.accept(out.toString());
+                out.setLength(0);
+            }
+        }
+    }
+}
@@ -3,6 +3,14 @@ package org.mykk.kkloglib;
 import android.os.Looper;
 import android.util.Log;
 
+import org.kk.lib.logger.AsyncLogger;
+import org.kk.lib.logger.LogLevelFilter;
+import org.kk.lib.logger.MappedLogFile;
+import org.kk.lib.logger.MessageSupplier;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.IllegalFormatException;
 import java.util.Locale;
 
 public class KL {
@@ -11,17 +19,52 @@ public class KL {
     private static final boolean ENABLE_CHECK_MAIN_THREAD = true;
     private static final boolean WRITE_ERROR_LOG_TO_FILE = true;
     private static final String DEFAULT_TAG = "KKLog";
+    // 异步输出后端，为null时直接在调用线程输出
+    private static volatile AsyncLogger sAsyncLogger = null;
+    // 错误日志文件，WRITE_ERROR_LOG_TO_FILE为true且调用过initErrorLogFile后生效
+    private static volatile MappedLogFile sErrorLogFile = null;
+    // 单个错误日志分段大小
+    private static final int ERROR_LOG_SEGMENT_SIZE = 256 * 1024;
+    // 最多保留的错误日志分段数，总占用不超过 1MB
+    private static final int ERROR_LOG_MAX_SEGMENTS = 4;
+
+    /**
+     * 设置异步输出后端，传null恢复同步输出
+     */
+    public static void setAsyncLogger(AsyncLogger logger) {
+        sAsyncLogger = logger;
+    }
 
     public static void d(String msg) {
-        if (ENABLE_LOG_OUTPUT) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(DEFAULT_TAG, Log.DEBUG)) {
 //            Log.d(getTag(DEFAULT_TAG), buildMessage(msg));
-            Log.d(DEFAULT_TAG, buildMessage(msg));
+            println(Log.DEBUG, DEFAULT_TAG, buildMessage(msg));
         }
     }
 
     public static void d(String TAG, String msg) {
-        if (ENABLE_LOG_OUTPUT) {
-            Log.d(DEFAULT_TAG + "/" + TAG, buildMessage(msg));
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(TAG, Log.DEBUG)) {
+            println(Log.DEBUG, DEFAULT_TAG + "/" + TAG, buildMessage(msg));
+        }
+    }
+
+    /**
+     * 按模板输出，只有该TAG需要输出时才会格式化
+     *  KL.d("Player", "position=%d", position);
+     */
+    public static void d(String TAG, String format, Object... args) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(TAG, Log.DEBUG)) {
+            println(Log.DEBUG, DEFAULT_TAG + "/" + TAG, buildMessage(formatMessage(format, args)));
+        }
+    }
+
+    /**
+     * 延迟构建日志内容，只有该TAG需要输出时才会调用supplier
+     *  KL.d("Player", () -> "state: " + state);
+     */
+    public static void d(String TAG, MessageSupplier supplier) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(TAG, Log.DEBUG)) {
+            println(Log.DEBUG, DEFAULT_TAG + "/" + TAG, buildMessage(supplier.get()));
         }
     }
 
@@ -29,6 +72,69 @@ public class KL {
 
     }
 
+    /**
+     * 初始化错误日志文件目录
+     *  KL.initErrorLogFile(new File(context.getFilesDir(), "kl_log"));
+     */
+    public static void initErrorLogFile(File dir) {
+        if (WRITE_ERROR_LOG_TO_FILE && sErrorLogFile == null) {
+            synchronized (KL.class) {
+                if (sErrorLogFile == null) {
+                    try {
+                        sErrorLogFile = new MappedLogFile(dir, "error", ERROR_LOG_SEGMENT_SIZE, ERROR_LOG_MAX_SEGMENTS);
+                    } catch (Exception e) {
+                        Log.e(DEFAULT_TAG, "init error log file failed", e);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void e(String TAG, String msg) {
+        e(TAG, msg, null);
+    }
+
+    public static void e(String TAG, String msg, Throwable throwable) {
+        if (ENABLE_LOG_OUTPUT) {
+            boolean loggable = LogLevelFilter.isLoggable(TAG, Log.ERROR);
+            // 错误日志文件不受级别过滤影响
+            MappedLogFile errorLogFile = WRITE_ERROR_LOG_TO_FILE ? sErrorLogFile : null;
+            if (!loggable && errorLogFile == null) {
+                // 没有任何输出，不获取调用堆栈
+                return;
+            }
+            String tag = DEFAULT_TAG + "/" + TAG;
+            String message = buildMessage(msg);
+            if (loggable) {
+                if (throwable == null) {
+                    println(Log.ERROR, tag, message);
+                } else {
+                    println(Log.ERROR, tag, message + '\n' + Log.getStackTraceString(throwable));
+                }
+            }
+            if (errorLogFile != null) {
+                errorLogFile.appendLine(System.currentTimeMillis(), Log.ERROR, tag, message, throwable);
+            }
+        }
+    }
+
+    private static void println(int priority, String tag, String msg) {
+        AsyncLogger asyncLogger = sAsyncLogger;
+        if (asyncLogger != null) {
+            asyncLogger.offer(priority, tag, msg, null);
+        } else {
+            Log.println(priority, tag, msg);
+        }
+    }
+
+    private static String formatMessage(String format, Object... args) {
+        try {
+            return String.format(Locale.US, format, args);
+        } catch (IllegalFormatException e) {
+            return format + " " + Arrays.toString(args);
+        }
+    }
+
     // 构建日志TAG
     private static String getTag(String logTag) {
         StackTraceElement[] trace = new Throwable().fillInStackTrace().getStackTrace();
@@ -44,8 +150,8 @@ public class KL {
         return logTag + "/" + callingClass;
     }
 
-    // 构建日志消息体
-    private static String buildMessage(String msg) {
+    // 构建日志消息体（包内可见，供基准测试调用）
+    static String buildMessage(String msg) {
         StackTraceElement[] trace = Thread.currentThread().getStackTrace();
         // [1]; //当前方法执行堆栈
         // [2]; //上一级的方法堆栈
@@ -0,0 +1,173 @@
+package com.test;
+
+import android.graphics.Bitmap;
+
+/**
+ * Dual Kawase 模糊，用于大半径
+ * 先逐级缩小一半（每级5次采样），再逐级放大回来（每级8次采样），
+ * 半径每增大一倍只多一级，而每级像素数是上一级的1/4，耗时基本不随半径增长。
+ * 半径不超过 SMALL_RADIUS_LIMIT 时交给 smallRadiusEngine（效果更接近高斯）。
+ */
+public class KawaseBlurEngine implements BlurEngine {
+    // 不超过这个半径时使用smallRadiusEngine
+    public static final float SMALL_RADIUS_LIMIT = 25f;
+    private static final int MAX_ITERATIONS = 8;
+
+    private final BlurEngine smallRadiusEngine;
+    // 每一级的像素，levels[0]是原图
+    private int[][] levels = new int[MAX_ITERATIONS + 1][];
+    private final int[] widths = new int[MAX_ITERATIONS + 1];
+    private final int[] heights = new int[MAX_ITERATIONS + 1];
+
+    public KawaseBlurEngine() {
+        this(null);
+    }
+
+    /**
+     * @param smallRadiusEngine 小半径使用的算法，为null时所有半径都用Kawase
+     */
+    public KawaseBlurEngine(BlurEngine smallRadiusEngine) {
+        this.smallRadiusEngine = smallRadiusEngine;
+    }
+
+    @Override
+    public synchronized Bitmap blur(Bitmap input, float radius) {
+        if (smallRadiusEngine != null && radius <= SMALL_RADIUS_LIMIT) {
+            return smallRadiusEngine.blur(input, radius);
+        }
+        if (radius <= 0 || !input.isMutable()) {
+            return input;
+        }
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int iterations = iterations(radius);
+        // 系数按阶跃响应实测，使标准差与 ReferenceBlurEngine 相差在10%左右
+        float offset = radius * 1.25f / (1 << (iterations + 1));
+
+        widths[0] = width;
+        heights[0] = height;
+        levels[0] = ensure(levels[0], width * height);
+        input.getPixels(levels[0], 0, width, 0, 0, width, height);
+        // 图片太小时减少级数
+        int count = 0;
+        while (count < iterations && widths[count] > 1 && heights[count] > 1) {
+            widths[count + 1] = (widths[count] + 1) / 2;
+            heights[count + 1] = (heights[count] + 1) / 2;
+            levels[count + 1] = ensure(levels[count + 1], widths[count + 1] * heights[count + 1]);
+            downsample(levels[count], widths[count], heights[count], levels[count + 1], widths[count + 1], heights[count + 1], offset);
+            count++;
+        }
+        for (int i = count; i > 0; i--) {
+            upsample(levels[i], widths[i], heights[i], levels[i - 1], widths[i - 1], heights[i - 1], offset);
+        }
+        input.setPixels(levels[0], 0, width, 0, 0, width, height);
+        return input;
+    }
+
+    @Override
+    public synchronized void release() {
+        levels = new int[MAX_ITERATIONS + 1][];
+        if (smallRadiusEngine != null) {
+            smallRadiusEngine.release();
+        }
+    }
+
+    /**
+     * 半径对应的缩放级数，使每级的采样偏移保持在1~2个像素
+     */
+    static int iterations(float radius) {
+        int iterations = 1;
+        while (iterations < MAX_ITERATIONS && radius / (1 << (iterations + 1)) > 1.5f) {
+            iterations++;
+        }
+        return iterations;
+    }
+
+    // 缩小一半：中心权重4，四个对角各1
+    private static void downsample(int[] src, int sw, int sh, int[] dst, int dw, int dh, float offset) {
+        float scaleX = (float) sw / dw;
+        float scaleY = (float) sh / dh;
+        float[] sum = new float[4];
+        for (int y = 0; y < dh; y++) {
+            float cy = (y + 0.5f) * scaleY;
+            for (int x = 0; x < dw; x++) {
+                float cx = (x + 0.5f) * scaleX;
+                sum[0] = sum[1] = sum[2] = sum[3] = 0;
+                sample(src, sw, sh, cx, cy, 4, sum);
+                sample(src, sw, sh, cx - offset, cy - offset, 1, sum);
+                sample(src, sw, sh, cx + offset, cy - offset, 1, sum);
+                sample(src, sw, sh, cx - offset, cy + offset, 1, sum);
+                sample(src, sw, sh, cx + offset, cy + offset, 1, sum);
+                dst[y * dw + x] = pack(sum, 8);
+            }
+        }
+    }
+
+    // 放大一倍：上下左右各1，四个对角各2
+    private static void upsample(int[] src, int sw, int sh, int[] dst, int dw, int dh, float offset) {
+        float scaleX = (float) sw / dw;
+        float scaleY = (float) sh / dh;
+        float half = offset / 2;
+        float[] sum = new float[4];
+        for (int y = 0; y < dh; y++) {
+            float cy = (y + 0.5f) * scaleY;
+            for (int x = 0; x < dw; x++) {
+                float cx = (x + 0.5f) * scaleX;
+                sum[0] = sum[1] = sum[2] = sum[3] = 0;
+                sample(src, sw, sh, cx - offset, cy, 1, sum);
+                sample(src, sw, sh, cx + offset, cy, 1, sum);
+                sample(src, sw, sh, cx, cy - offset, 1, sum);
+                sample(src, sw, sh, cx, cy + offset, 1, sum);
+                sample(src, sw, sh, cx - half, cy - half, 2, sum);
+                sample(src, sw, sh, cx + half, cy - half, 2, sum);
+                sample(src, sw, sh, cx - half, cy + half, 2, sum);
+                sample(src, sw, sh, cx + half, cy + half, 2, sum);
+                dst[y * dw + x] = pack(sum, 12);
+            }
+        }
+    }
+
+    // 双线性采样，坐标以像素为单位（像素中心在 i+0.5），超出边界取边缘像素
+    private static void sample(int[] pixels, int w, int h, float x, float y, float weight, float[] sum) {
+        float fx = x - 0.5f;
+        float fy = y - 0.5f;
+        int x0 = (int) Math.floor(fx);
+        int y0 = (int) Math.floor(fy);
+        float ax = fx - x0;
+        float ay = fy - y0;
+        int x1 = clamp(x0 + 1, w);
+        int y1 = clamp(y0 + 1, h);
+        x0 = clamp(x0, w);
+        y0 = clamp(y0, h);
+        int p00 = pixels[y0 * w + x0];
+        int p10 = pixels[y0 * w + x1];
+        int p01 = pixels[y1 * w + x0];
+        int p11 = pixels[y1 * w + x1];
+        float w00 = (1 - ax) * (1 - ay) * weight;
+        float w10 = ax * (1 - ay) * weight;
+        float w01 = (1 - ax) * ay * weight;
+        float w11 = ax * ay * weight;
+        for (int c = 0; c < 4; c++) {
+            int shift = 24 - c * 8;
+            sum[c] += ((p00 >>> shift) & 0xFF) * w00 + ((p10 >>> shift) & 0xFF) * w10
+                    + ((p01 >>> shift) & 0xFF) * w01 + ((p11 >>> shift) & 0xFF) * w11;
+        }
+    }
+
+    private static int pack(float[] sum, float total) {
+        int color = 0;
+        for (int c = 0; c < 4; c++) {
+            int value = Math.round(sum[c] / total);
+            color |= Math.min(255, Math.max(0, value)) << (24 - c * 8);
+        }
+        return color;
+    }
+
+    private static int clamp(int value, int size) {
+        return value < 0 ? 0 : value >= size ? size - 1 : value;
+    }
+
+    private static int[] ensure(int[] array, int size) {
+        return array == null || array.length < size ? new int[size] : array;
+    }
+}
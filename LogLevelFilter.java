@@ -0,0 +1,75 @@
+package org.kk.lib.logger;
+
+import android.util.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 运行时日志级别过滤，可按TAG单独设置，修改后立即生效，无需重新编译
+ *
+ *  LogLevelFilter.setDefaultLevel(Log.INFO);     // 默认只输出INFO及以上
+ *  LogLevelFilter.setLevel("Network", Log.DEBUG); // Network单独输出DEBUG
+ *
+ *  MyLog 使用调用类的简单类名或 MyLog.tagged() 传入的TAG作为过滤TAG，KL 使用传入的TAG。
+ */
+public final class LogLevelFilter {
+    private static final Map<String, Integer> sTagLevels = new ConcurrentHashMap<>();
+    private static volatile int sDefaultLevel = Log.VERBOSE;
+    // 默认级别和所有TAG级别中的最低值，低于它的日志不需要解析TAG就可以直接丢弃
+    private static volatile int sLowestLevel = Log.VERBOSE;
+
+    private LogLevelFilter() {
+    }
+
+    public static void setDefaultLevel(int level) {
+        sDefaultLevel = level;
+        updateLowestLevel();
+    }
+
+    public static int getDefaultLevel() {
+        return sDefaultLevel;
+    }
+
+    public static void setLevel(String tag, int level) {
+        sTagLevels.put(tag, level);
+        updateLowestLevel();
+    }
+
+    public static void clearLevel(String tag) {
+        sTagLevels.remove(tag);
+        updateLowestLevel();
+    }
+
+    public static void clearAll() {
+        sTagLevels.clear();
+        updateLowestLevel();
+    }
+
+    /**
+     * 不区分TAG的快速判断，返回false时任何TAG都不会输出
+     */
+    public static boolean isLoggable(int level) {
+        return level >= sLowestLevel;
+    }
+
+    /**
+     * 是否设置了按TAG的级别，没有设置时isLoggable(int)的结果即为最终结果
+     */
+    public static boolean hasTagLevels() {
+        return !sTagLevels.isEmpty();
+    }
+
+    public static boolean isLoggable(String tag, int level) {
+        Integer tagLevel = tag == null ? null : sTagLevels.get(tag);
+        return level >= (tagLevel != null ? tagLevel : sDefaultLevel);
+    }
+
+    private static synchronized void updateLowestLevel() {
+        int lowest = sDefaultLevel;
+        for (Integer level : sTagLevels.values()) {
+            lowest = Math.min(lowest, level);
+        }
+        sLowestLevel = lowest;
+    }
+}
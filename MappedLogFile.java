@@ -0,0 +1,313 @@
+package org.kk.lib.logger;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 基于内存映射的滚动日志文件
+ * 每个分段文件预先分配固定大小并映射到内存，写日志只是内存拷贝，没有系统调用；
+ * 进程被杀后已写入的数据仍在系统页缓存中，由内核落盘，不会丢失。
+ * 分段写满后切换到新文件，超过maxSegments时删除最旧的分段。
+ *
+ *  分段文件格式：
+ *  [0-3]   魔数 KLOG
+ *  [4-7]   格式版本
+ *  [8-11]  已写入数据的结束位置
+ *  [12-15] 保留
+ *  [16-]   日志数据
+ *
+ *  MappedLogFile file = new MappedLogFile(new File(context.getFilesDir(), "logs"), "error", 512 * 1024, 8);
+ *  file.appendText("some text\n");
+ */
+public class MappedLogFile implements AsyncLogger.Sink {
+    public static final int MAGIC = 0x4B4C4F47; // "KLOG"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    private static final int POSITION_OFFSET = 8;
+    private static final String SUFFIX = ".log";
+
+    private final File dir;
+    private final String prefix;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final StringBuilder lineBuilder = new StringBuilder(256);
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+    private final Date date = new Date();
+
+    private ByteBuffer scratch = ByteBuffer.allocate(1024);
+    private MappedByteBuffer buffer;
+    private int segmentIndex = -1;
+    // 作为Sink使用时，只写入不低于该级别的日志
+    private int minPriority = Log.VERBOSE;
+
+    /**
+     * @param dir         日志目录
+     * @param prefix      分段文件名前缀
+     * @param segmentSize 每个分段文件的大小（字节）
+     * @param maxSegments 最多保留的分段数，总占用不超过 segmentSize * maxSegments
+     */
+    public MappedLogFile(File dir, String prefix, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+        this.dir = dir;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Can not create log dir: " + dir);
+        }
+        // 接着上次最后一个分段继续写
+        List<File> segments = getSegmentFiles();
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            openSegment(parseIndex(segments.get(segments.size() - 1), prefix));
+        }
+    }
+
+    public void setMinPriority(int minPriority) {
+        this.minPriority = minPriority;
+    }
+
+    /**
+     * 追加一段已编码的数据，超过单个分段容量的部分会被截断
+     */
+    public synchronized void append(ByteBuffer data) {
+        int length = Math.min(data.remaining(), segmentSize - HEADER_SIZE);
+        if (buffer == null) {
+            return;
+        }
+        if (buffer.remaining() < length && !roll()) {
+            return;
+        }
+        int limit = data.limit();
+        data.limit(data.position() + length);
+        buffer.put(data);
+        data.limit(limit);
+        // 数据写完后再更新结束位置，进程在中途被杀时只会丢掉最后这一条
+        buffer.putInt(POSITION_OFFSET, buffer.position());
+    }
+
+    /**
+     * 保证当前分段还能写入length字节，不够时切换到新分段
+     * 需要把多条记录写进同一分段时，在synchronized(file)中先调用此方法
+     * @return false表示无法写入
+     */
+    public synchronized boolean ensureCapacity(int length) {
+        if (buffer == null) {
+            return false;
+        }
+        return buffer.remaining() >= Math.min(length, segmentSize - HEADER_SIZE) || roll();
+    }
+
+    /**
+     * 单个分段可写入的最大数据长度
+     */
+    public int getSegmentCapacity() {
+        return segmentSize - HEADER_SIZE;
+    }
+
+    /**
+     * 当前正在写入的分段序号，每次切换分段后递增
+     */
+    public synchronized int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    /**
+     * 追加一段文本（UTF-8编码）
+     */
+    public synchronized void appendText(CharSequence text) {
+        append(encode(text));
+    }
+
+    /**
+     * 追加一行logcat格式的文本
+     */
+    public synchronized void appendLine(long timeMillis, int priority, String tag, String msg, Throwable throwable) {
+        date.setTime(timeMillis);
+        lineBuilder.setLength(0);
+        lineBuilder.append(dateFormat.format(date))
+                .append(' ').append(priorityChar(priority))
+                .append('/').append(tag)
+                .append(": ").append(msg)
+                .append('\n');
+        if (throwable != null) {
+            lineBuilder.append(Log.getStackTraceString(throwable)).append('\n');
+        }
+        appendText(lineBuilder);
+    }
+
+    @Override
+    public void write(AsyncLogger.Record record) {
+        if (record.priority >= minPriority) {
+            appendLine(record.timeMillis, record.priority, record.tag, record.msg, record.throwable);
+        }
+    }
+
+    @Override
+    public void flush() {
+        // 写入映射内存即已完成，落盘由内核负责
+    }
+
+    /**
+     * 主动把当前分段同步到磁盘，只在需要防止掉电丢失时调用
+     */
+    public synchronized void sync() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 按写入顺序返回所有分段文件
+     */
+    public List<File> getSegmentFiles() {
+        return listSegmentFiles(dir, prefix);
+    }
+
+    /**
+     * 按写入顺序返回目录中指定前缀的所有分段文件
+     */
+    public static List<File> listSegmentFiles(File dir, String prefix) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith(prefix + "-") && name.endsWith(SUFFIX));
+        List<File> result = new ArrayList<>();
+        if (files == null) {
+            return result;
+        }
+        Arrays.sort(files, (a, b) -> Integer.compare(parseIndex(a, prefix), parseIndex(b, prefix)));
+        for (File file : files) {
+            if (parseIndex(file, prefix) >= 0) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取一个分段文件中已写入的数据（不含文件头），文件无效时返回空数组
+     */
+    public static byte[] readSegment(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC) {
+                return new byte[0];
+            }
+            raf.readInt();
+            int end = (int) Math.min(raf.readInt(), raf.length());
+            if (end <= HEADER_SIZE) {
+                return new byte[0];
+            }
+            byte[] data = new byte[end - HEADER_SIZE];
+            raf.seek(HEADER_SIZE);
+            raf.readFully(data);
+            return data;
+        }
+    }
+
+    private ByteBuffer encode(CharSequence text) {
+        encoder.reset();
+        scratch.clear();
+        CharBuffer in = CharBuffer.wrap(text);
+        while (true) {
+            CoderResult result = encoder.encode(in, scratch, true);
+            if (result.isOverflow()) {
+                ByteBuffer larger = ByteBuffer.allocate(scratch.capacity() * 2);
+                scratch.flip();
+                larger.put(scratch);
+                scratch = larger;
+            } else {
+                break;
+            }
+        }
+        encoder.flush(scratch);
+        scratch.flip();
+        return scratch;
+    }
+
+    private boolean roll() {
+        try {
+            openSegment(segmentIndex + 1);
+            deleteOldSegments();
+            return true;
+        } catch (IOException e) {
+            Log.e("MappedLogFile", "roll segment failed", e);
+            buffer = null;
+            return false;
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        File file = new File(dir, prefix + "-" + index + SUFFIX);
+        // MappedByteBuffer无法主动解除映射，旧的分段在GC时释放
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(segmentSize);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segmentIndex = index;
+        int position = buffer.getInt(POSITION_OFFSET);
+        if (buffer.getInt(0) != MAGIC || position < HEADER_SIZE || position > segmentSize) {
+            // 新文件或损坏的文件，从头开始写
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(POSITION_OFFSET, HEADER_SIZE);
+            position = HEADER_SIZE;
+        }
+        buffer.position(position);
+    }
+
+    private void deleteOldSegments() {
+        List<File> segments = getSegmentFiles();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            if (!segments.get(i).delete()) {
+                Log.w("MappedLogFile", "delete segment failed: " + segments.get(i));
+            }
+        }
+    }
+
+    private static int parseIndex(File file, String prefix) {
+        String name = file.getName();
+        try {
+            return Integer.parseInt(name.substring(prefix.length() + 1, name.length() - SUFFIX.length()));
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    static char priorityChar(int priority) {
+        switch (priority) {
+            case Log.VERBOSE:
+                return 'V';
+            case Log.DEBUG:
+                return 'D';
+            case Log.INFO:
+                return 'I';
+            case Log.WARN:
+                return 'W';
+            case Log.ERROR:
+                return 'E';
+            default:
+                return 'A';
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.kk.lib.logger;
+
+/**
+ * 延迟构建日志内容，只有该级别和TAG的日志需要输出时才会调用
+ *
+ *  MyLog.d(() -> "response: " + response);
+ */
+public interface MessageSupplier {
+    String get();
+}
@@ -4,10 +4,10 @@ import android.os.Looper;
 import android.text.TextUtils;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
+import java.util.Arrays;
+import java.util.IllegalFormatException;
 import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MyLog {
     // 是否开启日志
@@ -15,130 +15,449 @@ public class MyLog {
     // 是否显示线程信息
     public static boolean SHOW_THREAD_INFO = true;
     private static final String DEFAULT_TAG = "MyLog/";
+    private static final String LOG_CLASS_NAME = MyLog.class.getName();
+    // 查找调用者时最多检查的栈帧数
+    private static final int MAX_CALLER_DEPTH = 8;
+    // 缓存的调用位置上限，防止动态生成的类导致无限增长
+    private static final int MAX_CACHED_CALLERS = 2048;
+    // 调用位置(类名、文件名、行号) -> TAG等信息
+    private static final ConcurrentHashMap<StackTraceElement, CallSite> sCallSiteCache = new ConcurrentHashMap<>();
+    private static final CallSite UNKNOWN_CALL_SITE = new CallSite(DEFAULT_TAG, "");
+    // 线程ID和是否主线程，同一线程不会变化，每个线程只格式化一次
+    private static final ThreadLocal<String> sThreadInfo = new ThreadLocal<String>() {
+        @Override
+        protected String initialValue() {
+            Thread thread = Thread.currentThread();
+            return String.format(Locale.US, "[%d-MainThread:%s]",
+                    thread.getId(), Looper.getMainLooper().getThread() == thread);
+        }
+    };
+    // 异步输出后端，为null时直接在调用线程输出
+    private static volatile AsyncLogger sAsyncLogger = null;
+    // 二进制日志输出，不为null时日志只写入二进制文件，不输出到logcat
+    private static volatile BinaryLogWriter sBinaryLogWriter = null;
+    // 按调用位置限流，为null时不限流
+    private static volatile RateLimitFilter sRateLimitFilter = null;
+    // JSON格式化
+    private static volatile JsonPrettyPrinter sJsonPrinter = new JsonPrettyPrinter();
+
+    /**
+     * 设置异步输出后端，传null恢复同步输出
+     */
+    public static void setAsyncLogger(AsyncLogger logger) {
+        sAsyncLogger = logger;
+    }
+
+    /**
+     * 设置按调用位置的限流/采样，对所有调用位置生效，传null取消
+     * MyLog.tagged() 创建的logger可通过 withRateLimit() 单独设置
+     */
+    public static void setRateLimitFilter(RateLimitFilter filter) {
+        sRateLimitFilter = filter;
+    }
+
+    /**
+     * 设置二进制日志输出，传null恢复文本输出
+     * 二进制文件使用 BinaryLogDecoder 解码
+     */
+    public static void setBinaryLogWriter(BinaryLogWriter writer) {
+        sBinaryLogWriter = writer;
+    }
 
     public static void i(String msg) {
-        if (ENABLE_LOG_OUTPUT) {
-            try {
-                Log.i(getTag(), msg);
-            } catch (Exception ignored) {
-            }
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.INFO)) {
+            log(Log.INFO, msg, null, null, null);
+        }
+    }
+
+    /**
+     * 按模板输出，只有需要输出时才会格式化
+     *  MyLog.i("user=%s, count=%d", user, count);
+     */
+    public static void i(String format, Object... args) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.INFO)) {
+            log(Log.INFO, format, args, null, null);
+        }
+    }
+
+    public static void i(MessageSupplier supplier) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.INFO)) {
+            log(Log.INFO, null, null, supplier, null);
         }
     }
 
     public static void d(String msg) {
-        if (ENABLE_LOG_OUTPUT) {
-            try {
-                Log.d(getTag(), msg);
-            } catch (Exception ignored) {
-            }
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.DEBUG)) {
+            log(Log.DEBUG, msg, null, null, null);
+        }
+    }
+
+    /**
+     * 按模板输出，只有需要输出时才会格式化
+     *  MyLog.d("user=%s, count=%d", user, count);
+     */
+    public static void d(String format, Object... args) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.DEBUG)) {
+            log(Log.DEBUG, format, args, null, null);
+        }
+    }
+
+    public static void d(MessageSupplier supplier) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.DEBUG)) {
+            log(Log.DEBUG, null, null, supplier, null);
         }
     }
 
     public static void w(String msg) {
-        if (ENABLE_LOG_OUTPUT) {
-            try {
-                Log.w(getTag(), msg);
-            } catch (Exception ignored) {
-            }
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.WARN)) {
+            log(Log.WARN, msg, null, null, null);
+        }
+    }
+
+    /**
+     * 按模板输出，只有需要输出时才会格式化
+     *  MyLog.w("user=%s, count=%d", user, count);
+     */
+    public static void w(String format, Object... args) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.WARN)) {
+            log(Log.WARN, format, args, null, null);
+        }
+    }
+
+    public static void w(MessageSupplier supplier) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.WARN)) {
+            log(Log.WARN, null, null, supplier, null);
         }
     }
 
     public static void e(String msg) {
-        if (ENABLE_LOG_OUTPUT) {
-            try {
-                Log.e(getTag(), msg);
-            } catch (Exception ignored) {
-            }
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.ERROR)) {
+            log(Log.ERROR, msg, null, null, null);
+        }
+    }
+
+    /**
+     * 按模板输出，只有需要输出时才会格式化
+     *  MyLog.e("user=%s, count=%d", user, count);
+     */
+    public static void e(String format, Object... args) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.ERROR)) {
+            log(Log.ERROR, format, args, null, null);
+        }
+    }
+
+    public static void e(MessageSupplier supplier) {
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.ERROR)) {
+            log(Log.ERROR, null, null, supplier, null);
         }
     }
 
     public static void e(Throwable throwable) {
-        if (ENABLE_LOG_OUTPUT) {
-            try {
-                Log.e(getTag(), throwable == null ? "ERROR" : throwable.getMessage(), throwable);
-            } catch (Exception ignored) {
-            }
+        if (ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(Log.ERROR)) {
+            log(Log.ERROR, throwable == null ? "ERROR" : throwable.getMessage(), null, null, throwable);
         }
     }
 
-    // 构建日志TAG
-    private static String getTag() {
-        String finalTag;
+    /**
+     * @param message  args为null时为日志内容，否则为格式化模板
+     * @param supplier 不为null时由它生成日志内容
+     */
+    private static void log(int priority, String message, Object[] args, MessageSupplier supplier, Throwable throwable) {
         try {
-            String caller;
-            // 获取调用类定位
-            StackTraceElement[] trace = Thread.currentThread().getStackTrace();
-            boolean checkedLogClass = false;
-            int baseLogClassStackIndex = -1;
-            // [1]; //当前方法执行堆栈
-            // [2]; //上一级的方法堆栈
-            // [3]; //上上一级的方法堆栈
-            // 依次类推...
-            for (int i = 0; i < trace.length; i++) {
-                if (!checkedLogClass) {
-                    if (trace[i].getClassName().equals(MyLog.class.getName())) {
-                        checkedLogClass = true;
-                    }
-                } else {
-                    if (!trace[i].getClassName().equals(MyLog.class.getName())) {
-                        baseLogClassStackIndex = i;
-                        break;
-                    }
-                }
+            StackTraceElement caller = findCaller();
+            CallSite callSite = getCallSite(caller);
+            if (LogLevelFilter.hasTagLevels() && !LogLevelFilter.isLoggable(callSite.className, priority)) {
+                return;
             }
+            Object siteKey = caller == null ? callSite : caller;
+            if (!checkRateLimit(sRateLimitFilter, priority, siteKey, callSite.tag)) {
+                return;
+            }
+            write(priority, siteKey, callSite.tag, message, args, supplier, throwable);
+        } catch (Exception ignored) {
+        }
+    }
+
+    // 限流检查，有被丢弃的日志时先输出汇总
+    private static boolean checkRateLimit(RateLimitFilter filter, int priority, Object siteKey, String tag) {
+        if (filter == null) {
+            return true;
+        }
+        int suppressed = filter.check(siteKey);
+        if (suppressed == RateLimitFilter.DENY) {
+            return false;
+        }
+        if (suppressed > 0) {
+            write(priority, siteKey, tag, "suppressed " + suppressed + " messages", null, null, null);
+        }
+        return true;
+    }
 
-            if (baseLogClassStackIndex == -1) {
-                caller = getCallerClassName();
+    // 输出到二进制文件或logcat
+    private static void write(int priority, Object siteKey, String tag, String message, Object[] args,
+                              MessageSupplier supplier, Throwable throwable) {
+        BinaryLogWriter binaryLogWriter = sBinaryLogWriter;
+        if (binaryLogWriter != null) {
+            // 二进制模式不拼接TAG和线程信息，模板和参数原样写入
+            if (supplier != null) {
+                binaryLogWriter.write(priority, siteKey, tag, null, new Object[]{supplier.get()}, throwable);
+            } else if (args != null) {
+                binaryLogWriter.write(priority, siteKey, tag, message, args, throwable);
             } else {
-//                caller = trace[baseLogClassStackIndex].toString();
-                if (TextUtils.isEmpty(trace[baseLogClassStackIndex].getFileName())) {
-                    caller = getCallerClassName();
-                } else {
-                    // 简单的类定位，可点击
-                    caller = ".(" + trace[baseLogClassStackIndex].getFileName() + ":" + trace[baseLogClassStackIndex].getLineNumber() + ")";
-                }
+                binaryLogWriter.write(priority, siteKey, tag, null, new Object[]{message}, throwable);
             }
-            finalTag = DEFAULT_TAG + caller;
+        } else {
+            println(priority, appendThreadInfo(tag), buildMessage(message, args, supplier), throwable);
+        }
+    }
+
+    private static String buildMessage(String message, Object[] args, MessageSupplier supplier) {
+        if (supplier != null) {
+            return supplier.get();
+        }
+        if (args == null) {
+            return message;
+        }
+        try {
+            return String.format(Locale.US, message, args);
+        } catch (IllegalFormatException e) {
+            return message + " " + Arrays.toString(args);
+        }
+    }
+
+    private static void println(int priority, String tag, String msg, Throwable throwable) {
+        AsyncLogger asyncLogger = sAsyncLogger;
+        if (asyncLogger != null) {
+            asyncLogger.offer(priority, tag, msg, throwable);
+        } else if (throwable == null) {
+            Log.println(priority, tag, msg);
+        } else {
+            Log.println(priority, tag, msg + '\n' + Log.getStackTraceString(throwable));
+        }
+    }
+
+    // 构建日志TAG（包内可见，供基准测试调用）
+    static String getTag() {
+        try {
+            return appendThreadInfo(getCallSite(findCaller()).tag);
         } catch (Exception e) {
-            // 获取当前类名
-            finalTag = DEFAULT_TAG + getCallerClassName();
+            return appendThreadInfo(DEFAULT_TAG);
         }
+    }
+
+    private static String appendThreadInfo(String tag) {
         if (SHOW_THREAD_INFO) {
-            return finalTag + String.format(Locale.US, "[%d-MainThread:%s]", // 线程ID和是否主线程
-                    Thread.currentThread().getId(), Looper.myLooper() == Looper.getMainLooper());
+            return tag + sThreadInfo.get();
         } else {
-            return finalTag;
+            return tag;
         }
     }
 
-    private static String getCallerClassName() {
-        try {
-            String callerClass = "";
-            StackTraceElement[] trace = new Throwable().fillInStackTrace().getStackTrace();
-            for (int i = 2; i < trace.length; i++) {
-                if (!trace[i].getClassName().equals(MyLog.class.getName())) {
-                    callerClass = trace[i].getClassName();
-                    callerClass = callerClass.substring(callerClass.lastIndexOf('.') + 1);
-                    break;
+    // 查找调用MyLog的栈帧
+    private static StackTraceElement findCaller() {
+        // 只抓取一次调用栈，不再使用Thread.getStackTrace()（多出VMStack等虚拟机栈帧）
+        StackTraceElement[] trace = new Throwable().getStackTrace();
+        // [0]; //findCaller
+        // [1]; //MyLog内部方法
+        // ...
+        // 向上找第一个不属于MyLog的栈帧，最多查找MAX_CALLER_DEPTH层
+        int end = Math.min(trace.length, MAX_CALLER_DEPTH);
+        for (int i = 1; i < end; i++) {
+            if (!isLogClass(trace[i].getClassName())) {
+                return trace[i];
+            }
+        }
+        return null;
+    }
+
+    // 获取调用位置信息，同一调用位置只拼接一次
+    private static CallSite getCallSite(StackTraceElement caller) {
+        if (caller == null) {
+            return UNKNOWN_CALL_SITE;
+        }
+        CallSite callSite = sCallSiteCache.get(caller);
+        if (callSite == null) {
+            callSite = new CallSite(caller);
+            if (sCallSiteCache.size() < MAX_CACHED_CALLERS) {
+                sCallSiteCache.put(caller, callSite);
+            }
+        }
+        return callSite;
+    }
+
+    private static boolean isLogClass(String className) {
+        return LOG_CLASS_NAME.equals(className)
+                || (className.startsWith(LOG_CLASS_NAME) && className.length() > LOG_CLASS_NAME.length()
+                && className.charAt(LOG_CLASS_NAME.length()) == '$');
+    }
+
+    private static final class CallSite {
+        // 日志TAG
+        final String tag;
+        // 调用类的简单类名，用于按TAG过滤级别
+        final String className;
+
+        CallSite(String tag, String className) {
+            this.tag = tag;
+            this.className = className;
+        }
+
+        CallSite(StackTraceElement element) {
+            String callerClass = element.getClassName();
+            callerClass = callerClass.substring(callerClass.lastIndexOf('.') + 1);
+            int innerIndex = callerClass.indexOf('$');
+            this.className = innerIndex > 0 ? callerClass.substring(0, innerIndex) : callerClass;
+            if (TextUtils.isEmpty(element.getFileName())) {
+                // 没有文件信息（如混淆后）时使用类名
+                this.tag = DEFAULT_TAG + callerClass;
+            } else {
+                // 简单的类定位，可点击
+                this.tag = DEFAULT_TAG + ".(" + element.getFileName() + ":" + element.getLineNumber() + ")";
+            }
+        }
+    }
+
+    /**
+     * 创建固定TAG的日志输出，不解析调用栈，适合高频调用的位置
+     * 按TAG过滤级别时使用这里传入的tag
+     *
+     *  private static final MyLog.Tagged LOG = MyLog.tagged("Network");
+     *  LOG.d("request start");
+     */
+    public static Tagged tagged(String tag) {
+        return new Tagged(tag, null);
+    }
+
+    public static final class Tagged {
+        private final String name;
+        private final String tag;
+        private final RateLimitFilter rateLimitFilter;
+
+        private Tagged(String tag, RateLimitFilter rateLimitFilter) {
+            this.name = tag;
+            this.tag = DEFAULT_TAG + tag;
+            this.rateLimitFilter = rateLimitFilter;
+        }
+
+        /**
+         * 返回使用单独限流设置的logger，每个logger实例作为一个调用位置统计
+         *  private static final MyLog.Tagged ICE_LOG = MyLog.tagged("ICE").withRateLimit(new RateLimitFilter(5, 10, 1));
+         */
+        public Tagged withRateLimit(RateLimitFilter filter) {
+            return new Tagged(name, filter);
+        }
+
+        public void i(String msg) {
+            log(Log.INFO, msg, null, null, null);
+        }
+
+        public void i(String format, Object... args) {
+            log(Log.INFO, format, args, null, null);
+        }
+
+        public void i(MessageSupplier supplier) {
+            log(Log.INFO, null, null, supplier, null);
+        }
+
+        public void d(String msg) {
+            log(Log.DEBUG, msg, null, null, null);
+        }
+
+        public void d(String format, Object... args) {
+            log(Log.DEBUG, format, args, null, null);
+        }
+
+        public void d(MessageSupplier supplier) {
+            log(Log.DEBUG, null, null, supplier, null);
+        }
+
+        public void w(String msg) {
+            log(Log.WARN, msg, null, null, null);
+        }
+
+        public void w(String format, Object... args) {
+            log(Log.WARN, format, args, null, null);
+        }
+
+        public void w(MessageSupplier supplier) {
+            log(Log.WARN, null, null, supplier, null);
+        }
+
+        public void e(String msg) {
+            log(Log.ERROR, msg, null, null, null);
+        }
+
+        public void e(String format, Object... args) {
+            log(Log.ERROR, format, args, null, null);
+        }
+
+        public void e(MessageSupplier supplier) {
+            log(Log.ERROR, null, null, supplier, null);
+        }
+
+        public void e(Throwable throwable) {
+            log(Log.ERROR, throwable == null ? "ERROR" : throwable.getMessage(), null, null, throwable);
+        }
+
+        public boolean isLoggable(int priority) {
+            return ENABLE_LOG_OUTPUT && LogLevelFilter.isLoggable(priority)
+                    && (!LogLevelFilter.hasTagLevels() || LogLevelFilter.isLoggable(name, priority));
+        }
+
+        private void log(int priority, String message, Object[] args, MessageSupplier supplier, Throwable throwable) {
+            if (isLoggable(priority)) {
+                try {
+                    if (!checkRateLimit(rateLimitFilter != null ? rateLimitFilter : sRateLimitFilter, priority, this, tag)) {
+                        return;
+                    }
+                    write(priority, this, tag, message, args, supplier, throwable);
+                } catch (Exception ignored) {
                 }
             }
-            return callerClass;
-        } catch (Exception e) {
-            return "";
+        }
+    }
+
+    /**
+     * 设置JSON格式化参数（缩进、截断长度、分块大小），默认不截断
+     */
+    public static void setJsonPrettyPrinter(JsonPrettyPrinter printer) {
+        if (printer != null) {
+            sJsonPrinter = printer;
+        }
+    }
+
+    /**
+     * 格式化输出JSON，超长内容自动分多条日志输出
+     */
+    public static void json(String json) {
+        if (ENABLE_LOG_OUTPUT && json != null && LogLevelFilter.isLoggable(Log.DEBUG)) {
+            try {
+                StackTraceElement caller = findCaller();
+                final CallSite callSite = getCallSite(caller);
+                if (LogLevelFilter.hasTagLevels() && !LogLevelFilter.isLoggable(callSite.className, Log.DEBUG)) {
+                    return;
+                }
+                final Object siteKey = caller == null ? callSite : caller;
+                sJsonPrinter.print(json, new JsonPrettyPrinter.ChunkConsumer() {
+                    @Override
+                    public void accept(String chunk) {
+                        write(Log.DEBUG, siteKey, callSite.tag, chunk, null, null, null);
+                    }
+                });
+            } catch (Exception ignored) {
+            }
         }
     }
 
     /**
      * 简易JSON数据格式化输出
+     * 流式格式化，不解析成JSONObject；默认完整输出，setJsonPrettyPrinter() 指定了截断时按其设置截断
+     * 不是合法JSON时原样返回
      */
     public static String formatDataFromJson(String response) {
         try {
-            if (response.startsWith("{")) {
-                JSONObject jsonObject = new JSONObject(response);
-                return jsonObject.toString(4);
-            } else if (response.startsWith("[")) {
-                JSONArray jsonArray = new JSONArray(response);
-                return jsonArray.toString(4);
+            if ((response.startsWith("{") || response.startsWith("[")) && JsonPrettyPrinter.isValid(response)) {
+                return sJsonPrinter.format(response);
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,124 @@
+package org.kk.lib.logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按调用位置限流/采样的日志过滤
+ * 每个调用位置独立计算：先按 1/sampleEvery 采样，再经过令牌桶限速；
+ * 被丢弃的条数每隔 summaryIntervalMillis 以 "suppressed N messages" 汇总输出一次，
+ * 持续被限流时到了汇总时间也会放行一条。
+ * 汇总只在该位置下一次打日志时输出，没有定时器：位置不再打日志时，最后一段被丢弃的条数不会输出。
+ *
+ *  // 每个位置每秒最多5条，允许瞬时10条
+ *  MyLog.setRateLimitFilter(new RateLimitFilter(5, 10, 1));
+ *  // 每30条输出1条
+ *  private static final MyLog.Tagged FRAME_LOG = MyLog.tagged("Frame").withRateLimit(new RateLimitFilter(RateLimitFilter.UNLIMITED, 0, 30));
+ */
+public class RateLimitFilter {
+    // check() 返回此值表示丢弃本条日志
+    public static final int DENY = -1;
+    // 不限速，只采样
+    public static final double UNLIMITED = -1;
+    // 默认汇总间隔
+    public static final long DEFAULT_SUMMARY_INTERVAL_MILLIS = 5000;
+    // 最多单独统计的调用位置，超出后共用一个状态
+    private static final int MAX_SITES = 1024;
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final int sampleEvery;
+    private final long summaryIntervalNanos;
+    private final Map<Object, SiteState> states = new ConcurrentHashMap<>();
+    private final SiteState overflowState;
+
+    private final class SiteState {
+        double tokens;
+        long lastRefillNanos;
+        long sampleCount;
+        int suppressed;
+        long lastSummaryNanos;
+
+        SiteState(long now) {
+            tokens = burst;
+            lastRefillNanos = now;
+            lastSummaryNanos = now;
+        }
+    }
+
+    /**
+     * @param permitsPerSecond 每个调用位置每秒允许输出的条数，UNLIMITED不限速
+     * @param burst            令牌桶容量，即允许瞬时输出的条数
+     * @param sampleEvery      每N条采样1条，1表示不采样
+     */
+    public RateLimitFilter(double permitsPerSecond, int burst, int sampleEvery) {
+        this(permitsPerSecond, burst, sampleEvery, DEFAULT_SUMMARY_INTERVAL_MILLIS);
+    }
+
+    public RateLimitFilter(double permitsPerSecond, int burst, int sampleEvery, long summaryIntervalMillis) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.summaryIntervalNanos = summaryIntervalMillis * 1_000_000L;
+        this.overflowState = new SiteState(System.nanoTime());
+    }
+
+    /**
+     * 判断该调用位置本次是否可以输出
+     * @param site 调用位置，相同位置需传入equals相等的对象
+     * @return DENY表示丢弃；否则可以输出，返回值大于0时为需要汇总输出的被丢弃条数
+     *         （只有该位置再次调用时才会返回之前累计的条数）
+     */
+    public int check(Object site) {
+        long now = System.nanoTime();
+        SiteState state = states.get(site);
+        if (state == null) {
+            if (states.size() < MAX_SITES) {
+                SiteState created = new SiteState(now);
+                state = states.putIfAbsent(site, created);
+                if (state == null) {
+                    state = created;
+                }
+            } else {
+                state = overflowState;
+            }
+        }
+        synchronized (state) {
+            boolean allowed = state.sampleCount++ % sampleEvery == 0 && tryAcquire(state, now);
+            boolean summaryDue = state.suppressed > 0 && now - state.lastSummaryNanos >= summaryIntervalNanos;
+            if (!allowed && !summaryDue) {
+                state.suppressed++;
+                return DENY;
+            }
+            // 持续限流时到了汇总时间也放行一条，保证汇总能定期输出
+            if (!summaryDue) {
+                return 0;
+            }
+            int suppressed = state.suppressed;
+            state.suppressed = 0;
+            state.lastSummaryNanos = now;
+            return suppressed;
+        }
+    }
+
+    /**
+     * 清除所有调用位置的统计
+     */
+    public void reset() {
+        states.clear();
+    }
+
+    private boolean tryAcquire(SiteState state, long now) {
+        if (permitsPerSecond < 0) {
+            return true;
+        }
+        double elapsedSeconds = (now - state.lastRefillNanos) / 1e9;
+        state.tokens = Math.min(burst, state.tokens + elapsedSeconds * permitsPerSecond);
+        state.lastRefillNanos = now;
+        if (state.tokens >= 1) {
+            state.tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package com.test;
+
+import android.graphics.Bitmap;
+
+/**
+ * 单线程精确高斯模糊，速度很慢，只用于校验其他实现的输出
+ * sigma与RenderEffect一致：sigma = radius * 0.57735 + 0.5
+ */
+public class ReferenceBlurEngine implements BlurEngine {
+
+    @Override
+    public Bitmap blur(Bitmap input, float radius) {
+        if (radius <= 0 || !input.isMutable()) {
+            return input;
+        }
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int[] pixels = new int[width * height];
+        input.getPixels(pixels, 0, width, 0, 0, width, height);
+        blur(pixels, width, height, radius);
+        input.setPixels(pixels, 0, width, 0, 0, width, height);
+        return input;
+    }
+
+    @Override
+    public void release() {
+    }
+
+    /**
+     * 对ARGB像素数组做高斯模糊，边缘按最近像素延伸
+     */
+    public static void blur(int[] pixels, int width, int height, float radius) {
+        double[] kernel = kernel(radius);
+        int half = kernel.length / 2;
+        double[][] channels = new double[4][width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            for (int c = 0; c < 4; c++) {
+                channels[c][i] = (pixels[i] >>> (24 - c * 8)) & 0xFF;
+            }
+        }
+        double[] temp = new double[width * height];
+        for (double[] channel : channels) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    double sum = 0;
+                    for (int k = -half; k <= half; k++) {
+                        sum += kernel[k + half] * channel[y * width + clamp(x + k, width)];
+                    }
+                    temp[y * width + x] = sum;
+                }
+            }
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    double sum = 0;
+                    for (int k = -half; k <= half; k++) {
+                        sum += kernel[k + half] * temp[clamp(y + k, height) * width + x];
+                    }
+                    channel[y * width + x] = sum;
+                }
+            }
+        }
+        for (int i = 0; i < pixels.length; i++) {
+            int color = 0;
+            for (int c = 0; c < 4; c++) {
+                color |= (int) Math.min(255, Math.max(0, Math.round(channels[c][i]))) << (24 - c * 8);
+            }
+            pixels[i] = color;
+        }
+    }
+
+    private static double[] kernel(float radius) {
+        double sigma = radius * 0.57735 + 0.5;
+        int half = (int) Math.ceil(sigma * 3);
+        double[] kernel = new double[half * 2 + 1];
+        double sum = 0;
+        for (int i = -half; i <= half; i++) {
+            kernel[i + half] = Math.exp(-(i * i) / (2 * sigma * sigma));
+            sum += kernel[i + half];
+        }
+        for (int i = 0; i < kernel.length; i++) {
+            kernel[i] /= sum;
+        }
+        return kernel;
+    }
+
+    private static int clamp(int value, int size) {
+        return value < 0 ? 0 : value >= size ? size - 1 : value;
+    }
+}
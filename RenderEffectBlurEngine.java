@@ -0,0 +1,103 @@
+package com.test;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.graphics.ColorSpace;
+import android.graphics.HardwareRenderer;
+import android.graphics.PixelFormat;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderEffect;
+import android.graphics.RenderNode;
+import android.graphics.Shader;
+import android.hardware.HardwareBuffer;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Build;
+
+/**
+ * Android 12+ 使用 RenderEffect 在GPU上模糊
+ * 图片画到带模糊效果的RenderNode上，由HardwareRenderer渲染到ImageReader，
+ * 结果直接包装成HARDWARE格式的Bitmap返回，不经过CPU读回。
+ * 返回的Bitmap占用ImageReader的一个缓冲区，调用方不再显示它时必须交给 BitmapPool.put()，
+ * 此时才关闭对应的Image、让缓冲区重新用于渲染；同时持有的结果超过 MAX_IMAGES - 1 张时返回未模糊的input。
+ */
+@TargetApi(Build.VERSION_CODES.S)
+public class RenderEffectBlurEngine implements BlurEngine {
+    // 正在显示的、等待下一帧后释放的、正在渲染的各一张，再多留一张
+    private static final int MAX_IMAGES = 4;
+
+    private final RenderNode node = new RenderNode("BlurEngine");
+    private HardwareRenderer renderer;
+    private ImageReader imageReader;
+    private int width;
+    private int height;
+
+    @Override
+    public synchronized Bitmap blur(Bitmap input, float radius) {
+        if (radius <= 0) {
+            return input;
+        }
+        int w = input.getWidth();
+        int h = input.getHeight();
+        if (renderer == null) {
+            renderer = new HardwareRenderer();
+            renderer.setContentRoot(node);
+        }
+        if (imageReader == null || w != width || h != height) {
+            closeReader();
+            imageReader = ImageReader.newInstance(w, h, PixelFormat.RGBA_8888, MAX_IMAGES,
+                    HardwareBuffer.USAGE_GPU_SAMPLED_IMAGE | HardwareBuffer.USAGE_GPU_COLOR_OUTPUT);
+            renderer.setSurface(imageReader.getSurface());
+            width = w;
+            height = h;
+        }
+
+        node.setPosition(0, 0, w, h);
+        node.setRenderEffect(RenderEffect.createBlurEffect(radius, radius, Shader.TileMode.CLAMP));
+        RecordingCanvas canvas = node.beginRecording();
+        canvas.drawBitmap(input, 0, 0, null);
+        node.endRecording();
+        renderer.createRenderRequest().setWaitForPresent(true).syncAndDraw();
+
+        Image image;
+        try {
+            image = imageReader.acquireNextImage();
+        } catch (IllegalStateException e) {
+            // 调用方持有的结果太多，缓冲区都还没归还
+            return input;
+        }
+        if (image == null) {
+            return input;
+        }
+        Bitmap result;
+        try (HardwareBuffer buffer = image.getHardwareBuffer()) {
+            // Bitmap持有自己的引用，这里的buffer可以关闭
+            result = Bitmap.wrapHardwareBuffer(buffer, ColorSpace.get(ColorSpace.Named.SRGB));
+        }
+        if (result == null) {
+            image.close();
+            return input;
+        }
+        // Bitmap放回池中（回收）时才关闭Image，之前缓冲区不会被下一次渲染覆盖
+        BitmapPool.attach(result, image);
+        return result;
+    }
+
+    @Override
+    public synchronized void release() {
+        closeReader();
+        if (renderer != null) {
+            renderer.destroy();
+            renderer = null;
+        }
+        node.discardDisplayList();
+    }
+
+    // 已经返回的Bitmap持有各自缓冲区的引用，关闭后仍可显示，只是缓冲区不再被复用
+    private void closeReader() {
+        if (imageReader != null) {
+            imageReader.close();
+            imageReader = null;
+        }
+    }
+}
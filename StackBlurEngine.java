@@ -0,0 +1,187 @@
+package com.test;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多线程 Java StackBlur
+ * 先按行分块水平模糊，再按列分块垂直模糊，每块一个线程，原地修改图片像素。
+ * 耗时与半径基本无关，只与像素数有关，所有Android版本可用。
+ */
+public class StackBlurEngine implements BlurEngine {
+    private static final int CORES = Math.max(1, Runtime.getRuntime().availableProcessors());
+    // 所有实例共用，线程空闲时不占CPU
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(CORES, new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "StackBlur-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private int[] pixels;
+
+    @Override
+    public synchronized Bitmap blur(Bitmap input, float radius) {
+        int r = Math.round(radius);
+        if (r < 1 || !input.isMutable()) {
+            return input;
+        }
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int size = width * height;
+        if (pixels == null || pixels.length < size) {
+            pixels = new int[size];
+        }
+        input.getPixels(pixels, 0, width, 0, 0, width, height);
+        // 小图不值得切换线程
+        int threads = size < 64 * 64 ? 1 : CORES;
+        runPass(pixels, width, height, r, threads, true);
+        runPass(pixels, width, height, r, threads, false);
+        input.setPixels(pixels, 0, width, 0, 0, width, height);
+        return input;
+    }
+
+    @Override
+    public void release() {
+        pixels = null;
+    }
+
+    private static void runPass(final int[] pixels, final int width, final int height, final int radius,
+                                int threads, final boolean horizontal) {
+        if (threads == 1) {
+            blur(pixels, width, height, radius, 1, 0, horizontal);
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            final int core = i;
+            final int cores = threads;
+            tasks.add(() -> {
+                blur(pixels, width, height, radius, cores, core, horizontal);
+                return null;
+            });
+        }
+        try {
+            EXECUTOR.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 对第core块做一遍StackBlur
+     * horizontal为true时处理 [core*h/cores, (core+1)*h/cores) 行，否则处理对应的列
+     */
+    static void blur(int[] pixels, int width, int height, int radius, int cores, int core, boolean horizontal) {
+        int length = horizontal ? width : height;
+        int lines = horizontal ? height : width;
+        // 相邻像素的下标间隔
+        int step = horizontal ? 1 : width;
+        int lineStep = horizontal ? width : 1;
+        int last = length - 1;
+        int div = radius * 2 + 1;
+        int divSum = (radius + 1) * (radius + 1);
+        int[] stack = new int[div];
+
+        int start = core * lines / cores;
+        int end = (core + 1) * lines / cores;
+        for (int line = start; line < end; line++) {
+            int lineStart = line * lineStep;
+            long sumA = 0, sumR = 0, sumG = 0, sumB = 0;
+            long inA = 0, inR = 0, inG = 0, inB = 0;
+            long outA = 0, outR = 0, outG = 0, outB = 0;
+
+            // 左半边（含中心）都是第一个像素
+            int p = pixels[lineStart];
+            for (int i = 0; i <= radius; i++) {
+                stack[i] = p;
+                int a = p >>> 24, r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+                sumA += a * (i + 1);
+                sumR += r * (i + 1);
+                sumG += g * (i + 1);
+                sumB += b * (i + 1);
+                outA += a;
+                outR += r;
+                outG += g;
+                outB += b;
+            }
+            for (int i = 1; i <= radius; i++) {
+                p = pixels[lineStart + Math.min(i, last) * step];
+                stack[i + radius] = p;
+                int a = p >>> 24, r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+                int weight = radius + 1 - i;
+                sumA += a * weight;
+                sumR += r * weight;
+                sumG += g * weight;
+                sumB += b * weight;
+                inA += a;
+                inR += r;
+                inG += g;
+                inB += b;
+            }
+
+            int sp = radius;
+            int next = Math.min(radius, last);
+            for (int x = 0; x < length; x++) {
+                // 读取位置总在写入位置之前，可以原地写回
+                pixels[lineStart + x * step] = (int) ((sumA / divSum) << 24 | (sumR / divSum) << 16
+                        | (sumG / divSum) << 8 | (sumB / divSum));
+
+                sumA -= outA;
+                sumR -= outR;
+                sumG -= outG;
+                sumB -= outB;
+
+                int stackStart = sp + div - radius;
+                if (stackStart >= div) {
+                    stackStart -= div;
+                }
+                p = stack[stackStart];
+                outA -= p >>> 24;
+                outR -= (p >> 16) & 0xFF;
+                outG -= (p >> 8) & 0xFF;
+                outB -= p & 0xFF;
+
+                if (next < last) {
+                    next++;
+                }
+                p = pixels[lineStart + next * step];
+                stack[stackStart] = p;
+                inA += p >>> 24;
+                inR += (p >> 16) & 0xFF;
+                inG += (p >> 8) & 0xFF;
+                inB += p & 0xFF;
+
+                sumA += inA;
+                sumR += inR;
+                sumG += inG;
+                sumB += inB;
+
+                sp++;
+                if (sp >= div) {
+                    sp = 0;
+                }
+                p = stack[sp];
+                outA += p >>> 24;
+                outR += (p >> 16) & 0xFF;
+                outG += (p >> 8) & 0xFF;
+                outB += p & 0xFF;
+                inA -= p >>> 24;
+                inR -= (p >> 16) & 0xFF;
+                inG -= (p >> 8) & 0xFF;
+                inB -= p & 0xFF;
+            }
+        }
+    }
+}
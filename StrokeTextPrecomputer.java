@@ -0,0 +1,130 @@
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.PrecomputedText;
+import android.text.TextPaint;
+import android.widget.TextView;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在后台线程预先完成字形排版（shaping）和测量，供 StrokeWrapTextViewWrap 绑定
+ * Android 9+ 使用 PrecomputedText，低版本在后台测量一遍，预热系统共用的字形缓存。
+ * 视图绑定结果时不再在主线程排版，也不会等待后台完成，适合在 RecyclerView 的 onBindViewHolder（含预取）中使用：
+ *
+ *  holder.title.setPrecomputedText(StrokeTextPrecomputer.precompute(holder.title, text));
+ *
+ * 必须在主线程调用 precompute()，会读取视图当前的字体、字号等参数；
+ * 之后这些参数变化时结果仍然可以绑定，只是退化为普通文本重新排版。
+ */
+public final class StrokeTextPrecomputer {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(2, r -> {
+        Thread thread = new Thread(r, "StrokeText-precompute-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    // 不是 precompute() 返回的Future时，轮询是否完成的间隔
+    private static final long POLL_INTERVAL_MS = 16;
+
+    // 完成时把监听投递到主线程
+    private static final class Task extends FutureTask<CharSequence> {
+        private Runnable listener;
+
+        Task(Callable<CharSequence> callable) {
+            super(callable);
+        }
+
+        synchronized void setListener(Runnable listener) {
+            if (isDone()) {
+                MAIN.post(listener);
+            } else {
+                this.listener = listener;
+            }
+        }
+
+        @Override
+        protected void done() {
+            Runnable l;
+            synchronized (this) {
+                l = listener;
+                listener = null;
+            }
+            if (l != null) {
+                MAIN.post(l);
+            }
+        }
+    }
+
+    private StrokeTextPrecomputer() {
+    }
+
+    /**
+     * 使用默认的后台线程池预处理
+     */
+    public static Future<CharSequence> precompute(TextView view, CharSequence text) {
+        return precompute(view, text, EXECUTOR);
+    }
+
+    /**
+     * @param executor 执行预处理的线程池
+     * @return 预处理后的文本，交给视图的 setPrecomputedText()
+     */
+    public static Future<CharSequence> precompute(TextView view, CharSequence text, Executor executor) {
+        final CharSequence source = text == null ? "" : text;
+        Task task;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            // 参数中的画笔是副本，可以在后台线程使用
+            final PrecomputedText.Params params = view.getTextMetricsParams();
+            task = new Task(() -> PrecomputedText.create(source, params));
+        } else {
+            final TextPaint paint = new TextPaint(view.getPaint());
+            task = new Task(() -> {
+                paint.measureText(source, 0, source.length());
+                return source;
+            });
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * 在主线程调用，future完成后在主线程执行action（已完成时立即执行）
+     */
+    static void whenDone(Future<CharSequence> future, Runnable action) {
+        if (future.isDone()) {
+            action.run();
+        } else if (future instanceof Task) {
+            ((Task) future).setListener(action);
+        } else {
+            MAIN.postDelayed(() -> whenDone(future, action), POLL_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * 取出已完成的预处理结果，视图参数已经变化时返回普通文本（PrecomputedText参数不一致时TextView会抛异常）
+     * 在主线程调用，未完成时会等待，应先通过 whenDone() 等到完成
+     */
+    static CharSequence get(TextView view, Future<CharSequence> future) {
+        CharSequence text;
+        try {
+            text = future.get();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && text instanceof PrecomputedText
+                && !((PrecomputedText) text).getParams().equals(view.getTextMetricsParams())) {
+            return text.toString();
+        }
+        return text;
+    }
+}
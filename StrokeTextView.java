@@ -3,8 +3,6 @@ public class StrokeTextView extends AppCompatTextView {
     private static final int HORIZONTAL = 0;
     private static final int VERTICAL = 1;
 
-    private static final Map<String, Typeface> sTypefaceCache = new HashMap<>();
-
     private int[] mGradientColor;
     private int mStrokeWidth = 0;
     private int mStrokeColor = Color.BLACK;
@@ -12,27 +10,77 @@ public class StrokeTextView extends AppCompatTextView {
     private boolean gradientChanged = false;
     private int mGradientOrientation = HORIZONTAL;
     private String mFontAssetPath;
+    private final FontLoader.Callback mFontCallback = this::onFontLoaded;
+    // 字体还在加载，回调尚未收到
+    private boolean mFontPending = false;
 
     // ========== 跑马灯相关 ==========
+    private static final float MARQUEE_GAP = 50f; // 首尾间隔
     private boolean marqueeEnabled = false;
-    private float marqueeSpeed = 2f; // 每帧移动的像素数
+    private float marqueeSpeed = 120f; // 每秒移动的像素数
     private float marqueeOffset = 0f;
     private float textWidth = 0f;
     private boolean isMarqueeRunning = false;
-    private final Runnable marqueeRunnable = new Runnable() {
+    // 窗口是否可见，onWindowVisibilityChanged中更新
+    private boolean windowVisible = true;
+    // 上一帧的时间，0表示刚开始或刚恢复
+    private long lastMarqueeFrameNanos = 0L;
+    // 按帧时间移动，速度与刷新率无关
+    private final Choreographer.FrameCallback marqueeCallback = new Choreographer.FrameCallback() {
         @Override
-        public void run() {
+        public void doFrame(long frameTimeNanos) {
             if (!isMarqueeRunning) return;
-            marqueeOffset += marqueeSpeed;
-            if (textWidth > 0 && marqueeOffset > textWidth + 50) { // 50为间隔
-                marqueeOffset = 0f;
+            if (lastMarqueeFrameNanos != 0L) {
+                marqueeOffset += marqueeSpeed * (frameTimeNanos - lastMarqueeFrameNanos) / 1_000_000_000f;
+                float loopWidth = textWidth + MARQUEE_GAP;
+                if (textWidth > 0 && marqueeOffset > loopWidth) {
+                    marqueeOffset %= loopWidth;
+                }
             }
+            lastMarqueeFrameNanos = frameTimeNanos;
             invalidate();
-            postDelayed(this, 16); // 约60fps
+            Choreographer.getInstance().postFrameCallback(this);
         }
     };
     // ========== 跑马灯相关 ==========
 
+    // ========== 文本测量缓存 ==========
+    // 文本、画笔、尺寸或内边距变化时才重新计算
+    private boolean textMetricsDirty = true;
+    private String drawText = "";
+    private CharSequence ellipsizedText = "";
+    private float baseline = 0f;
+    private final Paint.FontMetricsInt fontMetrics = new Paint.FontMetricsInt();
+    private int cachedWidth = -1;
+    private int cachedHeight = -1;
+    private int cachedPaddingLeft = -1;
+    private int cachedPaddingRight = -1;
+    private float cachedTextSize = -1f;
+    private float cachedTextScaleX = -1f;
+    private float cachedLetterSpacing = -1f;
+    private Typeface cachedTypeface = null;
+    // ========== 文本测量缓存 ==========
+
+    // ========== 缓存绘制 ==========
+    // 每帧直接绘制文字（描边、填充各一遍）
+    public static final int RENDER_MODE_DIRECT = 0;
+    // 文字转为Path后描边和填充只绘制一次并缓存（Android 10+硬件加速时为RenderNode，否则为Bitmap），
+    // 之后每帧只平移绘制缓存，适合跑马灯；软件画布上的RenderNode缓存和超过最大Bitmap尺寸的文字仍直接绘制
+    public static final int RENDER_MODE_CACHED = 1;
+    private int renderMode = RENDER_MODE_DIRECT;
+    private boolean renderCacheDirty = true;
+    private CharSequence renderCacheText = null;
+    private int renderCacheTextColor = 0;
+    private Shader renderCacheShader = null;
+    // 当前文字超过最大Bitmap尺寸，不使用缓存
+    private boolean renderCacheOversized = false;
+    private final Path textPath = new Path();
+    private RenderNode renderNode;
+    private Bitmap renderBitmap;
+    private Canvas renderBitmapCanvas;
+    private final Paint renderBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    // ========== 缓存绘制 ==========
+
     public StrokeTextView(Context context) {
         super(context);
         init(context, null);
@@ -76,15 +124,25 @@ public class StrokeTextView extends AppCompatTextView {
      */
     public void setFontAsset(String assetPath) {
         if (!TextUtils.isEmpty(assetPath)) {
-            Typeface typeface = sTypefaceCache.get(assetPath);
-            if (typeface == null) {
-                try {
-                    typeface = Typeface.createFromAsset(getContext().getAssets(), assetPath);
-                    sTypefaceCache.put(assetPath, typeface);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+            if (mFontPending && !assetPath.equals(mFontAssetPath)) {
+                FontLoader.cancel(mFontAssetPath, mFontCallback);
             }
+            mFontAssetPath = assetPath;
+            // 已加载的直接使用，否则由 FontLoader 在后台加载，完成后再设置
+            Typeface typeface = FontLoader.getCached(assetPath);
+            mFontPending = typeface == null;
+            if (typeface != null) {
+                setTypeface(typeface);
+            } else {
+                FontLoader.load(getContext(), assetPath, mFontCallback);
+            }
+        }
+    }
+
+    private void onFontLoaded(String assetPath, Typeface typeface) {
+        // 加载期间可能又换了字体
+        if (assetPath.equals(mFontAssetPath)) {
+            mFontPending = false;
             if (typeface != null) {
                 setTypeface(typeface);
             }
@@ -120,6 +178,7 @@ public class StrokeTextView extends AppCompatTextView {
     public void setStrokeColor(int color) {
         if (mStrokeColor != color) {
             mStrokeColor = color;
+            renderCacheDirty = true;
             invalidate();
         }
     }
@@ -127,6 +186,18 @@ public class StrokeTextView extends AppCompatTextView {
     public void setStrokeWidth(int width) {
         if (mStrokeWidth != width) {
             mStrokeWidth = width;
+            renderCacheDirty = true;
+            invalidate();
+        }
+    }
+
+    /**
+     * 设置绘制方式，RENDER_MODE_DIRECT（默认）或 RENDER_MODE_CACHED
+     */
+    public void setRenderMode(int mode) {
+        if (renderMode != mode) {
+            renderMode = mode;
+            releaseRenderCache();
             invalidate();
         }
     }
@@ -138,8 +209,7 @@ public class StrokeTextView extends AppCompatTextView {
     public void startMarquee() {
         if (marqueeEnabled) return;
         marqueeEnabled = true;
-        isMarqueeRunning = true;
-        post(marqueeRunnable);
+        updateMarquee();
     }
 
     /**
@@ -147,45 +217,162 @@ public class StrokeTextView extends AppCompatTextView {
      */
     public void stopMarquee() {
         marqueeEnabled = false;
-        isMarqueeRunning = false;
-        removeCallbacks(marqueeRunnable);
+        setMarqueeRunning(false);
         marqueeOffset = 0f;
         invalidate();
     }
 
     /**
-     * 设置跑马灯速度（像素/帧，默认2）
+     * 设置跑马灯速度（像素/秒，默认120）
      */
+    public void setMarqueeVelocity(float pixelsPerSecond) {
+        this.marqueeSpeed = pixelsPerSecond;
+    }
+
+    /**
+     * 设置跑马灯速度（像素/帧，按60fps换算为像素/秒）
+     * @deprecated 使用 setMarqueeVelocity()，速度不再随刷新率变化
+     */
+    @Deprecated
     public void setMarqueeSpeed(float speed) {
-        this.marqueeSpeed = speed;
+        this.marqueeSpeed = speed * 60f;
+    }
+
+    /**
+     * 跑马灯只在开启、已附加到窗口、可见且文字超出宽度时运行
+     */
+    private void updateMarquee() {
+        boolean textFits = !textMetricsDirty && textWidth <= getWidth();
+        setMarqueeRunning(marqueeEnabled && isAttachedToWindow() && windowVisible && isShown() && !textFits);
+    }
+
+    private void setMarqueeRunning(boolean running) {
+        if (isMarqueeRunning == running) return;
+        isMarqueeRunning = running;
+        // 恢复时从当前位置继续，不把暂停的时间算进去
+        lastMarqueeFrameNanos = 0L;
+        if (running) {
+            Choreographer.getInstance().postFrameCallback(marqueeCallback);
+        } else {
+            Choreographer.getInstance().removeFrameCallback(marqueeCallback);
+        }
     }
     // ========== 跑马灯相关方法 ==========
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateMarquee();
+        if (mFontPending) {
+            // 离开窗口时取消了回调，重新获取字体
+            setFontAsset(mFontAssetPath);
+        }
+    }
+
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
-        stopMarquee();
+        // 只暂停，重新附加（如RecyclerView复用）时继续
+        setMarqueeRunning(false);
+        releaseRenderCache();
+        // FontLoader 不再持有本视图，字体加载慢时不会让已移除的视图和Activity无法回收
+        if (mFontPending) {
+            FontLoader.cancel(mFontAssetPath, mFontCallback);
+        }
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
-        String text = getText() == null ? "" : getText().toString();
-        if (TextUtils.isEmpty(text)) return;
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateMarquee();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        windowVisible = visibility == VISIBLE;
+        updateMarquee();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // 渐变长度随尺寸变化
+        gradientChanged = true;
+    }
 
+    @Override
+    protected void onTextChanged(CharSequence text, int start, int lengthBefore, int lengthAfter) {
+        super.onTextChanged(text, start, lengthBefore, lengthAfter);
+        // 父类构造函数中也会调用，此时字段还未初始化，只能设置标记
+        textMetricsDirty = true;
+    }
+
+    /**
+     * 文本、画笔、尺寸或内边距变化时重新计算文本宽度、基线和省略后的文本
+     */
+    private void updateTextMetrics(TextPaint paint) {
+        int width = getWidth();
+        int height = getHeight();
+        int paddingLeft = getPaddingLeft();
+        int paddingRight = getPaddingRight();
+        if (!textMetricsDirty
+                && width == cachedWidth && height == cachedHeight
+                && paddingLeft == cachedPaddingLeft && paddingRight == cachedPaddingRight
+                && paint.getTextSize() == cachedTextSize && paint.getTextScaleX() == cachedTextScaleX
+                && paint.getLetterSpacing() == cachedLetterSpacing && paint.getTypeface() == cachedTypeface) {
+            return;
+        }
+        textMetricsDirty = false;
+        cachedWidth = width;
+        cachedHeight = height;
+        cachedPaddingLeft = paddingLeft;
+        cachedPaddingRight = paddingRight;
+        cachedTextSize = paint.getTextSize();
+        cachedTextScaleX = paint.getTextScaleX();
+        cachedLetterSpacing = paint.getLetterSpacing();
+        cachedTypeface = paint.getTypeface();
+
+        drawText = getText() == null ? "" : getText().toString();
+        // 计算文本基线
+        paint.getFontMetricsInt(fontMetrics);
+        baseline = (height - fontMetrics.bottom + fontMetrics.top) / 2 - fontMetrics.top;
+        // 计算文本宽度
+        textWidth = paint.measureText(drawText);
+        // 处理单行省略
+        int availableWidth = width - paddingLeft - paddingRight;
+        ellipsizedText = TextUtils.ellipsize(drawText, paint, availableWidth, TextUtils.TruncateAt.END);
+        renderCacheDirty = true;
+        // 文字是否超出宽度可能变了
+        updateMarquee();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
         TextPaint paint = getPaint();
         paint.setTextAlign(Paint.Align.LEFT);
+        updateTextMetrics(paint);
+
+        String text = drawText;
+        if (TextUtils.isEmpty(text)) return;
 
-        // 计算文本基线
-        Paint.FontMetricsInt fontMetrics = paint.getFontMetricsInt();
-        int baseline = (getHeight() - fontMetrics.bottom + fontMetrics.top) / 2 - fontMetrics.top;
         float x = getPaddingLeft();
         float y = baseline;
 
-        // 计算文本宽度
-        textWidth = paint.measureText(text);
+        boolean marquee = marqueeEnabled && textWidth > getWidth();
+        if (renderMode == RENDER_MODE_CACHED
+                && updateRenderCache(canvas, marquee ? text : ellipsizedText, x, y, paint)) {
+            if (marquee) {
+                drawRenderCache(canvas, -marqueeOffset);
+                drawRenderCache(canvas, -marqueeOffset + textWidth + MARQUEE_GAP);
+            } else {
+                drawRenderCache(canvas, 0);
+            }
+            return;
+        }
 
         // 跑马灯逻辑
-        if (marqueeEnabled && textWidth > getWidth()) {
+        if (marquee) {
             canvas.save();
             // 向左平移
             canvas.translate(-marqueeOffset, 0);
@@ -194,31 +381,35 @@ public class StrokeTextView extends AppCompatTextView {
             drawStrokeText(canvas, text, x, y, paint);
 
             // 画第二遍（无缝衔接）
-            canvas.translate(textWidth + 50, 0); // 50为间隔
+            canvas.translate(textWidth + MARQUEE_GAP, 0);
             drawStrokeText(canvas, text, x, y, paint);
 
             canvas.restore();
         } else {
-            // 处理单行省略
-            int availableWidth = getWidth() - getPaddingLeft() - getPaddingRight();
-            CharSequence ellipsized = TextUtils.ellipsize(
-                    text, paint, availableWidth, TextUtils.TruncateAt.END
-            );
-            drawStrokeText(canvas, ellipsized, x, y, paint);
+            drawStrokeText(canvas, ellipsizedText, x, y, paint);
         }
     }
 
     private void drawStrokeText(Canvas canvas, CharSequence text, float x, float y, TextPaint paint) {
         // 1. 画描边
         if (mStrokeWidth > 0) {
-            paint.setStyle(Paint.Style.STROKE);
-            paint.setStrokeWidth(mStrokeWidth);
-            paint.setColor(mStrokeColor);
-            paint.setShader(null);
+            applyStrokePaint(paint);
             canvas.drawText(text, 0, text.length(), x, y, paint);
         }
 
         // 2. 画文字（支持渐变）
+        applyFillPaint(paint);
+        canvas.drawText(text, 0, text.length(), x, y, paint);
+    }
+
+    private void applyStrokePaint(TextPaint paint) {
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(mStrokeWidth);
+        paint.setColor(mStrokeColor);
+        paint.setShader(null);
+    }
+
+    private void applyFillPaint(TextPaint paint) {
         paint.setStyle(Paint.Style.FILL);
         paint.setStrokeWidth(0);
 
@@ -232,17 +423,111 @@ public class StrokeTextView extends AppCompatTextView {
             paint.setShader(null);
             paint.setColor(getCurrentTextColor());
         }
-        canvas.drawText(text, 0, text.length(), x, y, paint);
     }
 
-    private LinearGradient getGradient() {
-        if (mGradientColor == null || mGradientColor.length < 2) return null;
-        if (mGradientOrientation == HORIZONTAL) {
-            return new LinearGradient(0, 0, getWidth(), 0, mGradientColor, null, Shader.TileMode.CLAMP);
+    /**
+     * 文字、画笔、描边或颜色变化时重新生成绘制缓存：文字只转换一次Path，描边和填充各画一遍
+     * @return false表示本次不能使用缓存，需要直接绘制
+     */
+    private boolean updateRenderCache(Canvas canvas, CharSequence text, float x, float y, TextPaint paint) {
+        // 缓存类型只取决于视图所在窗口是否硬件加速，不随单次绘制的画布切换
+        boolean useRenderNode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && isHardwareAccelerated();
+        // 硬件加速视图的软件画布（如 BlurView 截图时录制父视图）：RenderNode画不上去，
+        // 也不在这里重建缓存，缓存保留给下一次硬件绘制，本次直接绘制
+        boolean softwarePass = isHardwareAccelerated() && !canvas.isHardwareAccelerated();
+        if (useRenderNode && softwarePass) {
+            return false;
+        }
+        applyFillPaint(paint);
+        if (!renderCacheDirty && text == renderCacheText
+                && getCurrentTextColor() == renderCacheTextColor && paint.getShader() == renderCacheShader
+                && (renderCacheOversized || (useRenderNode ? renderNode != null : renderBitmap != null))) {
+            return !renderCacheOversized;
+        }
+        if (softwarePass) {
+            return false;
+        }
+
+        String content = text.toString();
+        int width = Math.max(1, (int) Math.ceil(x + paint.measureText(content) + mStrokeWidth));
+        int height = Math.max(1, getHeight());
+        boolean oversized = !useRenderNode
+                && (width > canvas.getMaximumBitmapWidth() || height > canvas.getMaximumBitmapHeight());
+        if ((useRenderNode && renderBitmap != null) || (!useRenderNode && renderNode != null) || oversized) {
+            releaseRenderCache();
+        }
+        renderCacheDirty = false;
+        renderCacheText = text;
+        renderCacheTextColor = getCurrentTextColor();
+        renderCacheShader = paint.getShader();
+        // 超过最大纹理尺寸（很长的跑马灯文字）时不缓存，直接绘制
+        renderCacheOversized = oversized;
+        if (oversized) {
+            return false;
+        }
+
+        textPath.reset();
+        paint.getTextPath(content, 0, content.length(), x, y, textPath);
+        Canvas cacheCanvas;
+        if (useRenderNode) {
+            if (renderNode == null) {
+                renderNode = new RenderNode("StrokeTextView");
+            }
+            renderNode.setPosition(0, 0, width, height);
+            cacheCanvas = renderNode.beginRecording();
         } else {
-            return new LinearGradient(0, 0, 0, getHeight(), mGradientColor, null, Shader.TileMode.CLAMP);
+            if (renderBitmap == null || renderBitmap.getWidth() != width || renderBitmap.getHeight() != height) {
+                if (renderBitmap != null) {
+                    renderBitmap.recycle();
+                }
+                renderBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                renderBitmapCanvas = new Canvas(renderBitmap);
+            } else {
+                renderBitmap.eraseColor(Color.TRANSPARENT);
+            }
+            cacheCanvas = renderBitmapCanvas;
+        }
+        if (mStrokeWidth > 0) {
+            applyStrokePaint(paint);
+            cacheCanvas.drawPath(textPath, paint);
+        }
+        applyFillPaint(paint);
+        cacheCanvas.drawPath(textPath, paint);
+        if (useRenderNode) {
+            renderNode.endRecording();
+        }
+        return true;
+    }
+
+    private void drawRenderCache(Canvas canvas, float dx) {
+        if (renderNode != null) {
+            canvas.save();
+            canvas.translate(dx, 0);
+            canvas.drawRenderNode(renderNode);
+            canvas.restore();
+        } else if (renderBitmap != null) {
+            canvas.drawBitmap(renderBitmap, dx, 0, renderBitmapPaint);
         }
     }
+
+    private void releaseRenderCache() {
+        if (renderNode != null) {
+            renderNode.discardDisplayList();
+            renderNode = null;
+        }
+        if (renderBitmap != null) {
+            renderBitmap.recycle();
+            renderBitmap = null;
+            renderBitmapCanvas = null;
+        }
+        renderCacheDirty = true;
+    }
+
+    private LinearGradient getGradient() {
+        // 相同颜色、方向和尺寸的视图共用同一个Shader
+        int length = mGradientOrientation == HORIZONTAL ? getWidth() : getHeight();
+        return GradientShaderCache.get(mGradientColor, mGradientOrientation, length);
+    }
 }
 
 <declare-styleable name="StrokeTextView">
@@ -285,6 +570,11 @@ public class StrokeWrapTextViewWrap extends AppCompatTextView {
     private boolean gradientChanged = false;
     private int mGradientOrientation = HORIZONTAL;
     private String mFontAssetPath;
+    private final FontLoader.Callback mFontCallback = this::onFontLoaded;
+    // 字体还在加载，回调尚未收到
+    private boolean mFontPending = false;
+    // 已绑定、还在后台预处理的文字，完成前重新绑定或设置了文字时丢弃
+    private Future<CharSequence> mPrecomputedFuture;
 
     public StrokeWrapTextViewWrap(Context context) {
         super(context);
@@ -326,15 +616,73 @@ public class StrokeWrapTextViewWrap extends AppCompatTextView {
 
     public void setFontAsset(String assetPath) {
         if (!TextUtils.isEmpty(assetPath)) {
-            try {
-                Typeface typeface = Typeface.createFromAsset(getContext().getAssets(), assetPath);
+            if (mFontPending && !assetPath.equals(mFontAssetPath)) {
+                FontLoader.cancel(mFontAssetPath, mFontCallback);
+            }
+            mFontAssetPath = assetPath;
+            // 已加载的直接使用，否则由 FontLoader 在后台加载，完成后再设置
+            Typeface typeface = FontLoader.getCached(assetPath);
+            mFontPending = typeface == null;
+            if (typeface != null) {
+                setTypeface(typeface);
+            } else {
+                FontLoader.load(getContext(), assetPath, mFontCallback);
+            }
+        }
+    }
+
+    private void onFontLoaded(String assetPath, Typeface typeface) {
+        // 加载期间可能又换了字体
+        if (assetPath.equals(mFontAssetPath)) {
+            mFontPending = false;
+            if (typeface != null) {
                 setTypeface(typeface);
-            } catch (Exception e) {
-                e.printStackTrace();
             }
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mFontPending) {
+            // 离开窗口时取消了回调，重新获取字体
+            setFontAsset(mFontAssetPath);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        // FontLoader 不再持有本视图，字体加载慢时不会让已移除的视图和Activity无法回收
+        if (mFontPending) {
+            FontLoader.cancel(mFontAssetPath, mFontCallback);
+        }
+    }
+
+    /**
+     * 绑定 StrokeTextPrecomputer.precompute() 的结果，不阻塞主线程：
+     * 已完成时立即设置为文字，否则保持当前文字，完成后在主线程设置
+     */
+    public void setPrecomputedText(Future<CharSequence> future) {
+        mPrecomputedFuture = future;
+        if (future == null) return;
+        StrokeTextPrecomputer.whenDone(future, () -> {
+            if (mPrecomputedFuture != future) return;
+            mPrecomputedFuture = null;
+            CharSequence text = StrokeTextPrecomputer.get(this, future);
+            if (text != null) {
+                setText(text);
+            }
+        });
+    }
+
+    @Override
+    protected void onTextChanged(CharSequence text, int start, int lengthBefore, int lengthAfter) {
+        super.onTextChanged(text, start, lengthBefore, lengthAfter);
+        // 完成前直接 setText() 了新文字（如列表复用），之后完成的预处理结果不再覆盖
+        mPrecomputedFuture = null;
+    }
+
     public void setGradientOrientation(int orientation) {
         if (mGradientOrientation != orientation) {
             mGradientOrientation = orientation;
@@ -365,9 +713,8 @@ public class StrokeWrapTextViewWrap extends AppCompatTextView {
         }
     }
 
-    // 用于缓存 StaticLayout，提升性能
-    private StaticLayout mStrokeLayout;
-    private StaticLayout mFillLayout;
+    // 当前使用的 StaticLayout，来自 TextLayoutCache，描边和填充共用
+    private StaticLayout mLayout;
     private int mLastWidth = -1;
     private CharSequence mLastText = null;
 
@@ -384,18 +731,10 @@ public class StrokeWrapTextViewWrap extends AppCompatTextView {
             return;
         }
 
-        // 用和 onDraw 一样的 TextPaint
-        TextPaint fillPaint = new TextPaint(getPaint());
-        fillPaint.setStyle(Paint.Style.FILL);
-        fillPaint.setStrokeWidth(0);
+        // 相同文字和排版参数直接复用已经断行的 Layout
+        StaticLayout layout = obtainLayout(text, availableWidth);
 
-        StaticLayout fillLayout = StaticLayout.Builder.obtain(text, 0, text.length(), fillPaint, availableWidth)
-                .setAlignment(getLayoutAlignment())
-                .setMaxLines(getMaxLines())
-                .setEllipsize(getEllipsize())
-                .build();
-
-        int desiredHeight = fillLayout.getHeight() + getPaddingTop() + getPaddingBottom();
+        int desiredHeight = layout.getHeight() + getPaddingTop() + getPaddingBottom();
 
         int heightMode = MeasureSpec.getMode(heightMeasureSpec);
         int heightSize = MeasureSpec.getSize(heightMeasureSpec);
@@ -412,10 +751,25 @@ public class StrokeWrapTextViewWrap extends AppCompatTextView {
         setMeasuredDimension(widthSize, measuredHeight);
 
         // 缓存 layout，onDraw 复用
-        mFillLayout = fillLayout;
+        mLayout = layout;
         mLastWidth = availableWidth;
         mLastText = text;
-        mStrokeLayout = null; // 让 onDraw 重新生成
+    }
+
+    private StaticLayout obtainLayout(CharSequence text, int availableWidth) {
+        // 与 getTextMetricsParams() 一致，PrecomputedText 的测量结果才能被 StaticLayout 使用
+        TextDirectionHeuristic textDirection = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? getTextDirectionHeuristic() : null;
+        return TextLayoutCache.getDefault().get(text, getPaint(), availableWidth,
+                getLayoutAlignment(), getMaxLines(), getEllipsize(),
+                textDirection, getBreakStrategy(), getHyphenationFrequency());
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        // 渐变长度随尺寸变化
+        gradientChanged = true;
     }
 
     @Override
@@ -424,58 +778,41 @@ public class StrokeWrapTextViewWrap extends AppCompatTextView {
         if (TextUtils.isEmpty(text)) return;
 
         int availableWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        if (mLayout == null || mLastWidth != availableWidth || mLastText == null || !mLastText.equals(text)) {
+            mLayout = obtainLayout(text, availableWidth);
+            mLastWidth = availableWidth;
+            mLastText = text;
+        }
+
+        // Layout可能被多个视图共用，绘制属性每次绘制前设置
+        TextPaint paint = mLayout.getPaint();
+        canvas.save();
+        canvas.translate(getPaddingLeft(), getPaddingTop());
 
         // 1. 画描边
         if (mStrokeWidth > 0) {
-            if (mStrokeLayout == null || mLastWidth != availableWidth || mLastText == null || !mLastText.equals(text)) {
-                TextPaint strokePaint = new TextPaint(getPaint());
-                strokePaint.setStyle(Paint.Style.STROKE);
-                strokePaint.setStrokeWidth(mStrokeWidth);
-                strokePaint.setColor(mStrokeColor);
-                strokePaint.setShader(null);
-
-                mStrokeLayout = StaticLayout.Builder.obtain(text, 0, text.length(), strokePaint, availableWidth)
-                        .setAlignment(getLayoutAlignment())
-                        .setMaxLines(getMaxLines())
-                        .setEllipsize(getEllipsize())
-                        .build();
-            }
-
-            canvas.save();
-            canvas.translate(getPaddingLeft(), getPaddingTop());
-            mStrokeLayout.draw(canvas);
-            canvas.restore();
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(mStrokeWidth);
+            paint.setColor(mStrokeColor);
+            paint.setShader(null);
+            mLayout.draw(canvas);
         }
 
         // 2. 画文字（支持渐变）
-        if (mFillLayout == null || mLastWidth != availableWidth || mLastText == null || !mLastText.equals(text)) {
-            TextPaint fillPaint = new TextPaint(getPaint());
-            fillPaint.setStyle(Paint.Style.FILL);
-            fillPaint.setStrokeWidth(0);
-
-            if (mGradientColor != null && mGradientColor.length > 1) {
-                if (gradientChanged || mGradient == null) {
-                    mGradient = getGradient();
-                    gradientChanged = false;
-                }
-                fillPaint.setShader(mGradient);
-            } else {
-                fillPaint.setShader(null);
-                fillPaint.setColor(getCurrentTextColor());
+        paint.setStyle(Paint.Style.FILL);
+        paint.setStrokeWidth(0);
+        // 有Shader时颜色只提供透明度
+        paint.setColor(getCurrentTextColor());
+        if (mGradientColor != null && mGradientColor.length > 1) {
+            if (gradientChanged || mGradient == null) {
+                mGradient = getGradient();
+                gradientChanged = false;
             }
-
-            mFillLayout = StaticLayout.Builder.obtain(text, 0, text.length(), fillPaint, availableWidth)
-                    .setAlignment(getLayoutAlignment())
-                    .setMaxLines(getMaxLines())
-                    .setEllipsize(getEllipsize())
-                    .build();
-            mLastWidth = availableWidth;
-            mLastText = text;
+            paint.setShader(mGradient);
+        } else {
+            paint.setShader(null);
         }
-
-        canvas.save();
-        canvas.translate(getPaddingLeft(), getPaddingTop());
-        mFillLayout.draw(canvas);
+        mLayout.draw(canvas);
         canvas.restore();
     }
 
@@ -494,14 +831,8 @@ public class StrokeWrapTextViewWrap extends AppCompatTextView {
     }
 
     private LinearGradient getGradient() {
-        if (mGradientColor == null || mGradientColor.length < 2) return null;
-        int w = getMeasuredWidth();
-        int h = getMeasuredHeight();
-        if (w == 0 || h == 0) return null;
-        if (mGradientOrientation == HORIZONTAL) {
-            return new LinearGradient(0, 0, w, 0, mGradientColor, null, Shader.TileMode.CLAMP);
-        } else {
-            return new LinearGradient(0, 0, 0, h, mGradientColor, null, Shader.TileMode.CLAMP);
-        }
+        // 测量前尺寸为0时返回null，onDraw中会再次获取
+        int length = mGradientOrientation == HORIZONTAL ? getMeasuredWidth() : getMeasuredHeight();
+        return GradientShaderCache.get(mGradientColor, mGradientOrientation, length);
     }
 }
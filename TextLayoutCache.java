@@ -0,0 +1,236 @@
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.StaticLayout;
+import android.text.TextDirectionHeuristic;
+import android.text.TextPaint;
+import android.text.TextUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 进程内共用的 StaticLayout 缓存（LRU，按估算内存限制大小）
+ * 以文本和影响排版的画笔属性、宽度、对齐、最大行数、省略方式、文字方向、断行策略、断字频率为key，
+ * RecyclerView中反复出现的相同文字直接复用已经断行的Layout。
+ *
+ * 缓存中的Layout持有自己的画笔副本，只有排版相关的属性是确定的；
+ * 颜色、描边、Shader等绘制属性由使用方每次绘制前设置到 layout.getPaint() 上，
+ * 所以描边和填充可以共用同一个Layout。
+ * 带样式的Spanned文本不缓存（样式不在key中）；没有样式的（如 PrecomputedText）按文字缓存。
+ * 未命中时仍需断行；传入的文字方向、断行策略、断字频率与 PrecomputedText 的参数一致时，
+ * StaticLayout 才会直接使用其中的测量结果，否则会重新测量。
+ *
+ *  StaticLayout layout = TextLayoutCache.getDefault().get(text, getPaint(), width, alignment, maxLines, ellipsize);
+ */
+public class TextLayoutCache {
+    // 默认缓存大小
+    public static final long DEFAULT_MAX_SIZE = 1024 * 1024;
+
+    private static volatile TextLayoutCache sDefault;
+
+    private long maxSize;
+    private long currentSize = 0;
+    // 按访问顺序排列，最久未使用的在最前面
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private static final class Key {
+        final String text;
+        final float textSize;
+        final float textScaleX;
+        final float textSkewX;
+        final float letterSpacing;
+        final Typeface typeface;
+        final int flags;
+        final int width;
+        final Layout.Alignment alignment;
+        final int maxLines;
+        final TextUtils.TruncateAt ellipsize;
+        final TextDirectionHeuristic textDirection;
+        final int breakStrategy;
+        final int hyphenationFrequency;
+        final int hashCode;
+
+        Key(String text, TextPaint paint, int width, Layout.Alignment alignment, int maxLines, TextUtils.TruncateAt ellipsize,
+            TextDirectionHeuristic textDirection, int breakStrategy, int hyphenationFrequency) {
+            this.text = text;
+            this.textSize = paint.getTextSize();
+            this.textScaleX = paint.getTextScaleX();
+            this.textSkewX = paint.getTextSkewX();
+            this.letterSpacing = paint.getLetterSpacing();
+            this.typeface = paint.getTypeface();
+            this.flags = paint.getFlags();
+            this.width = width;
+            this.alignment = alignment;
+            this.maxLines = maxLines;
+            this.ellipsize = ellipsize;
+            this.textDirection = textDirection;
+            this.breakStrategy = breakStrategy;
+            this.hyphenationFrequency = hyphenationFrequency;
+            int result = text.hashCode();
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + Float.floatToIntBits(textScaleX);
+            result = 31 * result + Float.floatToIntBits(textSkewX);
+            result = 31 * result + Float.floatToIntBits(letterSpacing);
+            result = 31 * result + (typeface == null ? 0 : typeface.hashCode());
+            result = 31 * result + flags;
+            result = 31 * result + width;
+            result = 31 * result + (alignment == null ? 0 : alignment.hashCode());
+            result = 31 * result + maxLines;
+            result = 31 * result + (ellipsize == null ? 0 : ellipsize.hashCode());
+            result = 31 * result + (textDirection == null ? 0 : textDirection.hashCode());
+            result = 31 * result + breakStrategy;
+            result = 31 * result + hyphenationFrequency;
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hashCode == key.hashCode
+                    && width == key.width && maxLines == key.maxLines && flags == key.flags
+                    && textSize == key.textSize && textScaleX == key.textScaleX
+                    && textSkewX == key.textSkewX && letterSpacing == key.letterSpacing
+                    && typeface == key.typeface && alignment == key.alignment && ellipsize == key.ellipsize
+                    && textDirection == key.textDirection && breakStrategy == key.breakStrategy
+                    && hyphenationFrequency == key.hyphenationFrequency
+                    && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        final StaticLayout layout;
+        final long size;
+
+        Entry(StaticLayout layout, long size) {
+            this.layout = layout;
+            this.size = size;
+        }
+    }
+
+    /**
+     * @param maxSize 估算的最大内存（字节）
+     */
+    public TextLayoutCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static TextLayoutCache getDefault() {
+        if (sDefault == null) {
+            synchronized (TextLayoutCache.class) {
+                if (sDefault == null) {
+                    sDefault = new TextLayoutCache(DEFAULT_MAX_SIZE);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 使用 StaticLayout.Builder 默认的文字方向、断行策略（SIMPLE）和断字频率（NONE）
+     */
+    public StaticLayout get(CharSequence text, TextPaint paint, int width, Layout.Alignment alignment,
+                            int maxLines, TextUtils.TruncateAt ellipsize) {
+        return get(text, paint, width, alignment, maxLines, ellipsize, null, 0, 0);
+    }
+
+    /**
+     * 获取排好版的Layout，没有时新建并缓存
+     * 文字方向、断行策略、断字频率应与TextView一致（即 getTextMetricsParams() 中的值），
+     * PrecomputedText 的测量结果才能被使用
+     * @param paint         只读取排版相关的属性，不会被Layout持有
+     * @param textDirection 为null时使用默认方向
+     */
+    public StaticLayout get(CharSequence text, TextPaint paint, int width, Layout.Alignment alignment,
+                            int maxLines, TextUtils.TruncateAt ellipsize,
+                            TextDirectionHeuristic textDirection, int breakStrategy, int hyphenationFrequency) {
+        width = Math.max(0, width);
+        if (text instanceof Spanned && ((Spanned) text).getSpans(0, text.length(), Object.class).length > 0) {
+            return build(text, paint, width, alignment, maxLines, ellipsize, textDirection, breakStrategy, hyphenationFrequency);
+        }
+        Key key = new Key(text.toString(), paint, width, alignment, maxLines, ellipsize,
+                textDirection, breakStrategy, hyphenationFrequency);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                return entry.layout;
+            }
+        }
+        // 断行比较耗时，不在锁内进行
+        StaticLayout layout = build(text, paint, width, alignment, maxLines, ellipsize,
+                textDirection, breakStrategy, hyphenationFrequency);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                // 其他线程已经放入
+                return entry.layout;
+            }
+            entry = new Entry(layout, estimateSize(text, layout));
+            entries.put(key, entry);
+            currentSize += entry.size;
+            trimToSize(maxSize);
+        }
+        return layout;
+    }
+
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getCurrentSize() {
+        return currentSize;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentSize = 0;
+    }
+
+    private static StaticLayout build(CharSequence text, TextPaint paint, int width, Layout.Alignment alignment,
+                                      int maxLines, TextUtils.TruncateAt ellipsize,
+                                      TextDirectionHeuristic textDirection, int breakStrategy, int hyphenationFrequency) {
+        // Layout持有画笔副本，使用方修改自己的画笔不影响缓存
+        TextPaint layoutPaint = new TextPaint(paint);
+        layoutPaint.setStyle(Paint.Style.FILL);
+        layoutPaint.setStrokeWidth(0);
+        layoutPaint.setShader(null);
+        StaticLayout.Builder builder = StaticLayout.Builder.obtain(text, 0, text.length(), layoutPaint, width)
+                .setAlignment(alignment)
+                .setMaxLines(maxLines)
+                .setEllipsize(ellipsize)
+                .setBreakStrategy(breakStrategy)
+                .setHyphenationFrequency(hyphenationFrequency);
+        if (textDirection != null) {
+            builder.setTextDirection(textDirection);
+        }
+        return builder.build();
+    }
+
+    // 文本、每行的断行信息以及对象本身的粗略估算，PrecomputedText另有每个字符的宽度
+    private static long estimateSize(CharSequence text, StaticLayout layout) {
+        int charSize = text instanceof String ? 2 : 6;
+        return 256 + text.length() * (long) charSize + layout.getLineCount() * 64L;
+    }
+
+    private void trimToSize(long size) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (currentSize > size && iterator.hasNext()) {
+            currentSize -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+}
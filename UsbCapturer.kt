@@ -2,6 +2,7 @@ package test.whip
 
 import android.content.Context
 import android.hardware.usb.UsbDevice
+import android.util.Log
 import com.serenegiant.usb.IFrameCallback
 import com.serenegiant.usb.USBMonitor
 import com.serenegiant.usb.USBMonitor.OnDeviceConnectListener
@@ -13,6 +14,8 @@ import org.webrtc.SurfaceTextureHelper
 import org.webrtc.SurfaceViewRenderer
 import org.webrtc.VideoCapturer
 import org.webrtc.VideoFrame
+import org.kk.lib.logger.MyLog
+import org.kk.lib.logger.RateLimitFilter
 import timber.log.Timber
 import java.nio.ByteBuffer
 import java.util.concurrent.Executor
@@ -27,6 +30,11 @@ class UsbCapturer(context: Context, private val svVideoRender: SurfaceViewRender
 
     var camera: UVCCamera? = null
 
+    companion object {
+        // 每帧都会回调，每300帧（30fps下约10秒）输出一次
+        private val frameLog = MyLog.tagged("UsbCapturer").withRateLimit(RateLimitFilter(RateLimitFilter.UNLIMITED, 1, 300))
+    }
+
     init {
         executor.execute(Runnable {
             monitor = USBMonitor(context, this@UsbCapturer)
@@ -118,6 +126,10 @@ class UsbCapturer(context: Context, private val svVideoRender: SurfaceViewRender
     }
 
     override fun onFrame(frame: ByteBuffer) {
+        // 先判断级别，关闭日志时不产生装箱和参数数组
+        if (frameLog.isLoggable(Log.DEBUG)) {
+            frameLog.d("onFrame: %d bytes", frame.remaining())
+        }
         executor.execute(Runnable {
             val imageArray = ByteArray(frame.remaining())
             frame[imageArray]
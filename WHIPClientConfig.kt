@@ -30,6 +30,8 @@ import org.webrtc.SurfaceTextureHelper
 import org.webrtc.SurfaceViewRenderer
 import org.webrtc.VideoTrack
 import org.webrtc.WrappedVideoDecoderFactory
+import org.kk.lib.logger.MyLog
+import org.kk.lib.logger.RateLimitFilter
 import java.net.HttpURLConnection
 import java.net.URL
 
@@ -52,6 +54,12 @@ class WHIPClient(private val config: WHIPClientConfig) {
     private var localVideoTrack: VideoTrack? = null
     private lateinit var peerConnectionFactory: PeerConnectionFactory
 
+    companion object {
+        private val log = MyLog.tagged("WHIP")
+        // ICE候选在收集阶段会密集回调，每秒最多输出5条，其余汇总为 suppressed N messages
+        private val iceCandidateLog = MyLog.tagged("WHIP-ICE").withRateLimit(RateLimitFilter(5.0, 10, 1))
+    }
+
     init {
         println("Initializing PeerConnection")
         initializePeerConnection()
@@ -115,64 +123,64 @@ class WHIPClient(private val config: WHIPClientConfig) {
         peerConnection = peerConnectionFactory.createPeerConnection(rtcConfig, object : PeerConnection.Observer {
 
             override fun onIceGatheringChange(iceGatheringState: PeerConnection.IceGatheringState?) {
-                println("onIceGatheringChange: $iceGatheringState")
+                log.d("onIceGatheringChange: %s", iceGatheringState)
                 if (iceGatheringState == PeerConnection.IceGatheringState.COMPLETE) {
                     iceGatheringComplete.complete(peerConnection?.localDescription?.description)
                 }
             }
 
             override fun onTrack(rtpTransceiver: RtpTransceiver?) {
-                println("onTrack: $rtpTransceiver")
+                log.d("onTrack: %s", rtpTransceiver)
             }
 
             override fun onConnectionChange(newState: PeerConnection.PeerConnectionState?) {
                 // Handle connection state change
-                println("onConnectionChange: $newState")
+                log.i("onConnectionChange: %s", newState)
             }
 
             override fun onSignalingChange(signalingState: PeerConnection.SignalingState?) {
-                println("onSignalingChange: $signalingState")
+                log.d("onSignalingChange: %s", signalingState)
             }
 
             override fun onIceConnectionChange(iceConnectionState: PeerConnection.IceConnectionState?) {
-                println("onIceConnectionChange: $iceConnectionState")
+                log.i("onIceConnectionChange: %s", iceConnectionState)
             }
 
             override fun onIceCandidatesRemoved(candidates: Array<out IceCandidate>?) {
-                println("onIceCandidatesRemoved")
+                log.d("onIceCandidatesRemoved: %d", candidates?.size ?: 0)
                 peerConnection!!.removeIceCandidates(candidates)
             }
 
             override fun onIceConnectionReceivingChange(receiving: Boolean) {
-                println("onIceConnectionReceivingChange")
+                log.d("onIceConnectionReceivingChange: %b", receiving)
             }
 
             override fun onIceCandidate(candidate: IceCandidate?) {
-                println("onIceCandidate: $candidate")
+                iceCandidateLog.d("onIceCandidate: %s", candidate)
                 peerConnection!!.addIceCandidate(candidate)
             }
 
             override fun onAddStream(stream: MediaStream?) {
-                println("onAddStream: $stream, videoTracks: ${stream?.videoTracks?.size}, audioTracks: ${stream?.audioTracks?.size}")
+                log.d("onAddStream: %s, videoTracks: %s, audioTracks: %s", stream, stream?.videoTracks?.size, stream?.audioTracks?.size)
             }
 
             override fun onRemoveStream(stream: MediaStream?) {
-                println("onRemoveStream: $stream")
+                log.d("onRemoveStream: %s", stream)
             }
 
             override fun onDataChannel(dataChannel: DataChannel?) {
-                println("onDataChannel: $dataChannel")
+                log.d("onDataChannel: %s", dataChannel)
             }
 
             override fun onRenegotiationNeeded() {
-                println("onRenegotiationNeeded")
+                log.d("onRenegotiationNeeded")
                 coroutineScope.launch {
                     negotiateConnectionWithClientOffer()
                 }
             }
 
             override fun onAddTrack(receiver: RtpReceiver?, mediaStreams: Array<out MediaStream>?) {
-                println("onAddTrack: ${mediaStreams?.size}")
+                log.d("onAddTrack: %s", mediaStreams?.size)
             }
         }).apply {
             localAudioTrack?.let {
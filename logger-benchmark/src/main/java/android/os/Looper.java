@@ -0,0 +1,26 @@
+package android.os;
+
+/**
+ * 基准测试用的空实现，启动基准测试的线程视为主线程
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper(Thread.currentThread());
+
+    private final Thread thread;
+
+    private Looper(Thread thread) {
+        this.thread = thread;
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static Looper myLooper() {
+        return Thread.currentThread() == MAIN.thread ? MAIN : null;
+    }
+
+    public Thread getThread() {
+        return thread;
+    }
+}
@@ -0,0 +1,10 @@
+package android.text;
+
+/**
+ * 基准测试用的空实现
+ */
+public class TextUtils {
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+}
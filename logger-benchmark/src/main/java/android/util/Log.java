@@ -0,0 +1,67 @@
+package android.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * 基准测试用的空实现，只累加消息长度，防止调用被JIT优化掉
+ * 每个线程累加到自己的计数器，多线程测试时不会因为写同一个缓存行而互相拖慢
+ */
+public final class Log {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+
+    // 数组两端留出空位，避免和其他线程的计数器落在同一个缓存行
+    private static final int SINK_INDEX = 16;
+    private static final ThreadLocal<int[]> SINK = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[SINK_INDEX * 2];
+        }
+    };
+
+    private Log() {
+    }
+
+    public static int println(int priority, String tag, String msg) {
+        if (tag == null || msg == null) {
+            throw new NullPointerException();
+        }
+        int length = tag.length() + msg.length();
+        SINK.get()[SINK_INDEX] += length;
+        return length;
+    }
+
+    public static int d(String tag, String msg) {
+        return println(DEBUG, tag, msg);
+    }
+
+    public static int i(String tag, String msg) {
+        return println(INFO, tag, msg);
+    }
+
+    public static int w(String tag, String msg) {
+        return println(WARN, tag, msg);
+    }
+
+    public static int e(String tag, String msg) {
+        return println(ERROR, tag, msg);
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return println(ERROR, tag, msg + '\n' + getStackTraceString(tr));
+    }
+
+    public static String getStackTraceString(Throwable tr) {
+        if (tr == null) {
+            return "";
+        }
+        StringWriter writer = new StringWriter();
+        tr.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+}
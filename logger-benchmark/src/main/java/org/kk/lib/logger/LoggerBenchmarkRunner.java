@@ -0,0 +1,31 @@
+package org.kk.lib.logger;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 依次以1、4、16个线程运行基准测试，并开启GC分析（gc.alloc.rate.norm 为每次调用分配的字节数）
+ * 参数为要运行的基准测试名称正则，不传时运行全部
+ */
+public class LoggerBenchmarkRunner {
+    private static final int[] THREAD_COUNTS = {1, 4, 16};
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREAD_COUNTS) {
+            ChainedOptionsBuilder builder = new OptionsBuilder()
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class);
+            if (args.length == 0) {
+                builder.include("org\\.(kk\\.lib\\.logger|mykk\\.kkloglib)\\..*Benchmark.*");
+            } else {
+                for (String include : args) {
+                    builder.include(include);
+                }
+            }
+            new Runner(builder.build()).run();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.kk.lib.logger;
+
+import android.util.Log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyLog 各输出路径的吞吐量
+ * 每个基准方法在独立的JVM中运行，State中修改的全局设置不会互相影响
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MyLogBenchmark {
+    private static final MyLog.Tagged TAGGED = MyLog.tagged("Benchmark");
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int value;
+    }
+
+    @State(Scope.Benchmark)
+    public static class DisabledLevel {
+        @Setup(Level.Trial)
+        public void setUp() {
+            LogLevelFilter.setDefaultLevel(Log.INFO);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            LogLevelFilter.setDefaultLevel(Log.VERBOSE);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RateLimited {
+        @Setup(Level.Trial)
+        public void setUp() {
+            MyLog.setRateLimitFilter(new RateLimitFilter(100, 100, 1));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            MyLog.setRateLimitFilter(null);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Async {
+        AsyncLogger logger;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            logger = new AsyncLogger(8192, AsyncLogger.OverflowPolicy.DROP_OLDEST);
+            logger.start();
+            MyLog.setAsyncLogger(logger);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            MyLog.setAsyncLogger(null);
+            logger.shutdown();
+            System.out.println("\nAsyncLogger dropped: " + logger.getDroppedCount());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Binary {
+        File dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("mylog-binary").toFile();
+            MyLog.setBinaryLogWriter(new BinaryLogWriter(new MappedLogFile(dir, BinaryLogWriter.FILE_PREFIX, 4 * 1024 * 1024, 4)));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            MyLog.setBinaryLogWriter(null);
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Json {
+        String payload;
+        JsonPrettyPrinter printer = new JsonPrettyPrinter();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // 约200KB的接口返回数据
+            StringBuilder builder = new StringBuilder("{\"code\":0,\"msg\":\"ok\",\"data\":[");
+            for (int i = 0; i < 1000; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append("{\"id\":").append(i)
+                        .append(",\"name\":\"item ").append(i)
+                        .append("\",\"price\":").append(i * 1.5)
+                        .append(",\"tags\":[\"a\",\"b\",\"c\"],\"desc\":\"")
+                        .append("description of the item, long enough to look like real data")
+                        .append("\"}");
+            }
+            payload = builder.append("]}").toString();
+        }
+    }
+
+    @Benchmark
+    public String getTag() {
+        return MyLog.getTag();
+    }
+
+    @Benchmark
+    public void logPlain() {
+        MyLog.d("plain message");
+    }
+
+    @Benchmark
+    public void logFormat(Counter counter) {
+        MyLog.d("value=%d name=%s", counter.value++, "benchmark");
+    }
+
+    @Benchmark
+    public void logTagged() {
+        TAGGED.d("plain message");
+    }
+
+    @Benchmark
+    public void logSupplierDisabled(DisabledLevel disabled, final Counter counter) {
+        MyLog.d(new MessageSupplier() {
+            @Override
+            public String get() {
+                return "value=" + counter.value;
+            }
+        });
+    }
+
+    @Benchmark
+    public void logRateLimited(RateLimited rateLimited) {
+        MyLog.d("plain message");
+    }
+
+    @Benchmark
+    public void logAsync(Async async) {
+        MyLog.d("plain message");
+    }
+
+    @Benchmark
+    public void logBinary(Binary binary, Counter counter) {
+        MyLog.d("value=%d name=%s", counter.value++, "benchmark");
+    }
+
+    @Benchmark
+    public String formatDataFromJson(Json json) {
+        return MyLog.formatDataFromJson(json.payload);
+    }
+
+    @Benchmark
+    public void jsonChunked(Json json, final Blackhole blackhole) {
+        json.printer.print(json.payload, new JsonPrettyPrinter.ChunkConsumer() {
+            @Override
+            public void accept(String chunk) {
+                blackhole.consume(chunk);
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package org.mykk.kkloglib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KL 各输出路径的吞吐量
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KLBenchmark {
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int value;
+    }
+
+    @Benchmark
+    public String buildMessage() {
+        return KL.buildMessage("plain message");
+    }
+
+    @Benchmark
+    public void logPlain() {
+        KL.d("Benchmark", "plain message");
+    }
+
+    @Benchmark
+    public void logFormat(Counter counter) {
+        KL.d("Benchmark", "value=%d name=%s", counter.value++, "benchmark");
+    }
+}